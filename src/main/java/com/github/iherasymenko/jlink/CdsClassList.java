@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The class list written by -XX:DumpLoadedClassList and read by -XX:SharedClassListFile
+final class CdsClassList {
+
+    private static final String LAMBDA_PROXY = "@lambda-proxy ";
+
+    private static final Pattern ID = Pattern.compile(" id: \\d+$");
+
+    private CdsClassList() {
+    }
+
+    // The ids are only referenced by the classes of custom class loaders, which are not archived by the default CDS archive
+    static List<String> read(Path classList) throws IOException {
+        List<String> out = new ArrayList<>();
+        if (!Files.exists(classList)) {
+            return out;
+        }
+        for (String line : Files.readAllLines(classList, StandardCharsets.UTF_8)) {
+            if (line.isEmpty() || line.startsWith("#") || line.contains(" source: ")) {
+                continue;
+            }
+            out.add(ID.matcher(line).replaceFirst(""));
+        }
+        return out;
+    }
+
+    // The entries of the classes packaged in the given modules of the image. The classes of the application modules cannot be
+    // archived by -Xshare:dump as those modules are not resolved without -m, nor can the classes excluded from the image.
+    static List<String> filter(Collection<String> entries, Path image, Collection<String> modules) throws IOException {
+        List<String> out = new ArrayList<>();
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", image.toString()))) {
+            for (String entry : entries) {
+                String className;
+                if (entry.startsWith(LAMBDA_PROXY)) {
+                    className = entry.substring(LAMBDA_PROXY.length()).split(" ", 2)[0];
+                } else if (entry.startsWith("@")) {
+                    out.add(entry);
+                    continue;
+                } else {
+                    className = entry;
+                }
+                if (isPackaged(jrt, className, modules)) {
+                    out.add(entry);
+                }
+            }
+        }
+        return out;
+    }
+
+    private static boolean isPackaged(FileSystem jrt, String className, Collection<String> modules) throws IOException {
+        int slash = className.lastIndexOf('/');
+        if (slash == -1) {
+            return false;
+        }
+        Path packageFolder = jrt.getPath("/packages", className.substring(0, slash).replace('/', '.'));
+        if (!Files.isDirectory(packageFolder)) {
+            return false;
+        }
+        List<String> packageModules;
+        try (Stream<Path> links = Files.list(packageFolder)) {
+            packageModules = links.map(link -> link.getFileName().toString()).collect(Collectors.toList());
+        }
+        for (String module : packageModules) {
+            if (modules.contains(module) && Files.exists(jrt.getPath("/modules", module, className + ".class"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The files of the extracted JDKs by their SHA-256 and mode. The JDKs hard link the files from here, so that a file shared
+// by several JDKs, e.g. a legal notice or a file unchanged between patch releases, is stored (and cached by the OS) once.
+// A file nobody links anymore has a single link, which is how the garbage is told apart.
+final class ContentStore {
+
+    private final Path folder;
+
+    private int reusedFiles;
+
+    private long reusedBytes;
+
+    private ContentStore(Path folder) {
+        this.folder = folder;
+    }
+
+    // Null if the file system cannot tell the number of links of a file
+    static ContentStore of(Path folder) {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("unix") ? new ContentStore(folder) : null;
+    }
+
+    // The file of the store with the given content, written to the store if it is not there yet
+    Path write(InputStream content, int mode) throws IOException {
+        Files.createDirectories(folder);
+        Path temporary = Files.createTempFile(folder, "content", ".tmp");
+        MessageDigest digest = Fingerprint.digest();
+        try {
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temporary), digest)) {
+                content.transferTo(out);
+            }
+            String hash = Fingerprint.hex(digest.digest());
+            Path file = folder.resolve(hash.substring(0, 2)).resolve(hash + "-" + Integer.toOctalString(mode));
+            if (Files.exists(file)) {
+                reusedFiles++;
+                reusedBytes += Files.size(temporary);
+                Files.delete(temporary);
+                return file;
+            }
+            Files.createDirectories(file.getParent());
+            Files.setPosixFilePermissions(temporary, JdkArchives.permissions(mode));
+            // Another build may have stored the same content meanwhile, which is just as good
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    int getReusedFiles() {
+        return reusedFiles;
+    }
+
+    long getReusedBytes() {
+        return reusedBytes;
+    }
+
+    // Deletes the files no JDK links anymore, and the leftovers of interrupted writes
+    void collectGarbage() throws IOException {
+        if (!Files.isDirectory(folder)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walker = Files.walk(folder)) {
+            files = walker.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            if (file.getFileName().toString().endsWith(".tmp") || (Integer) Files.getAttribute(file, "unix:nlink") == 1) {
+                Files.delete(file);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// A runtime-shaped directory for development, assembled instead of linking an image: the files of the toolchain JDK
+// as symbolic links, copies of the application modules in the 'app' folder, and launcher scripts like the ones of jlink
+// that put the 'app' folder on the module path.
+final class DevRuntime {
+
+    static final String APP_FOLDER = "app";
+
+    // The options of 'jlink --add-options', one per line, which the java launcher of a dev runtime does not know of
+    static final String ADD_OPTIONS_FILE = "add-options";
+
+    private DevRuntime() {
+    }
+
+    // Why a dev runtime cannot be assembled in the output, or null if it can. The JDK is never copied nor hard linked
+    // into the output, and the java launcher cannot load jmods.
+    static String unsupportedReason(Collection<File> modulePathEntries, Path output) throws IOException {
+        for (File entry : modulePathEntries) {
+            if (entry.getName().endsWith(".jmod")) {
+                return entry.getName() + " is a jmod, which the java launcher cannot load";
+            }
+        }
+        Files.createDirectories(output);
+        return supportsSymbolicLinks(output) ? null : "symbolic links cannot be created in " + output;
+    }
+
+    static void assemble(Path jdkHome, Collection<File> modulePathEntries, Map<String, String> launchers, List<String> addOptions, Path output) throws IOException {
+        Files.createDirectories(output);
+        linkJdk(jdkHome, output);
+        Path app = Files.createDirectories(output.resolve(APP_FOLDER));
+        int release = JdkRelease.read(jdkHome.resolve(JdkRelease.RELEASE_FILE)).getMajorVersion();
+        // Copied, so that rewriting a jar in place, e.g. by the jar task, does not change the modules of a running application
+        for (File entry : modulePathEntries) {
+            Path source = entry.toPath();
+            ModuleInfo moduleInfo;
+            try {
+                moduleInfo = ModuleGraph.moduleInfo(source, release);
+            } catch (IOException e) {
+                moduleInfo = null;
+            }
+            if (Files.isDirectory(source)) {
+                // An exploded module
+                ImageFiles.copy(source, app.resolve(moduleInfo != null ? moduleInfo.getName() : source.getFileName().toString()));
+            } else if (Files.isRegularFile(source)) {
+                // An automatic module keeps the file name its name is derived from
+                Path target = app.resolve(moduleInfo != null ? moduleInfo.getName() + ".jar" : source.getFileName().toString());
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+        Files.write(output.resolve(ADD_OPTIONS_FILE), addOptions, StandardCharsets.UTF_8);
+        for (Map.Entry<String, String> launcher : launchers.entrySet()) {
+            writeLauncher(output.resolve("bin"), launcher.getKey(), launcher.getValue(), String.join(" ", addOptions));
+        }
+    }
+
+    // What the java launcher of the runtime needs to run the application as the one of a linked image would, if it is a dev runtime
+    static List<String> javaArgs(Path image) {
+        Path app = image.resolve(APP_FOLDER);
+        if (!Files.isDirectory(app)) {
+            return List.of();
+        }
+        List<String> out = new ArrayList<>();
+        Path addOptions = image.resolve(ADD_OPTIONS_FILE);
+        if (Files.isRegularFile(addOptions)) {
+            try {
+                out.addAll(Files.readAllLines(addOptions, StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        out.addAll(List.of("--module-path", app.toAbsolutePath().toString()));
+        return out;
+    }
+
+    private static boolean supportsSymbolicLinks(Path folder) {
+        Path link = folder.resolve(".symbolic-link");
+        try {
+            Files.createSymbolicLink(link, folder.toAbsolutePath());
+            Files.delete(link);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    // The java launcher resolves its own symbolic link to find the JDK, so the rest of the runtime is for the looks of it
+    private static void linkJdk(Path jdkHome, Path output) throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(jdkHome)) {
+            entries = files.collect(Collectors.toList());
+        }
+        for (Path entry : entries) {
+            String name = entry.getFileName().toString();
+            if (name.equals(Jmods.JMODS_FOLDER)) {
+                continue;
+            }
+            if (name.equals("bin")) {
+                Path bin = Files.createDirectories(output.resolve("bin"));
+                try (Stream<Path> files = Files.list(entry)) {
+                    for (Path file : (Iterable<Path>) files::iterator) {
+                        Files.createSymbolicLink(bin.resolve(file.getFileName().toString()), file.toAbsolutePath());
+                    }
+                }
+            } else {
+                Files.createSymbolicLink(output.resolve(name), entry.toAbsolutePath());
+            }
+        }
+    }
+
+    // The same scripts as the ones of 'jlink --launcher', plus the module path. jlink puts the add-options into the image,
+    // so they are passed by the scripts instead.
+    private static void writeLauncher(Path bin, String name, String module, String addOptions) throws IOException {
+        String moduleArgs = "--module-path \"$DIR/../" + APP_FOLDER + "\" -m " + module;
+        Path script = bin.resolve(name);
+        Files.write(script, List.of(
+                "#!/bin/sh",
+                "JLINK_VM_OPTIONS='" + addOptions.replace("'", "'\\''") + "'",
+                "DIR=`dirname $0`",
+                "$DIR/java $JLINK_VM_OPTIONS " + moduleArgs + " \"$@\""
+        ), StandardCharsets.UTF_8);
+        if (Files.getFileStore(script).supportsFileAttributeView("posix")) {
+            Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwxr-xr-x"));
+        }
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            Files.write(bin.resolve(name + ".bat"), List.of(
+                    "@echo off",
+                    "set JLINK_VM_OPTIONS=" + addOptions,
+                    "set DIR=%~dp0",
+                    "\"%DIR%\\java\" %JLINK_VM_OPTIONS% --module-path \"%DIR%\\..\\" + APP_FOLDER + "\" -m " + module + " %*"
+            ), StandardCharsets.UTF_8);
+        }
+    }
+
+}
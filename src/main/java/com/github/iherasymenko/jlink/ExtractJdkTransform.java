@@ -32,6 +32,9 @@ import org.gradle.work.DisableCachingByDefault;
 import javax.inject.Inject;
 import java.io.File;
 
+// No longer used by the plugin, the JDK archives are extracted into the JDK store by the image tasks instead.
+// Kept for the builds that register the transform themselves, and to be removed in the next major version.
+@Deprecated
 @NonNullApi
 @DisableCachingByDefault(because = "Not worth caching")
 public abstract class ExtractJdkTransform implements TransformAction<TransformParameters.None> {
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+// Cheap fingerprints of the files a build reads, good enough to tell whether the files changed within a build
+final class Fingerprint {
+
+    private Fingerprint() {
+    }
+
+    // The paths, sizes, and modification times of the files (and of the files of the directories)
+    static String of(Collection<File> files) throws IOException {
+        StringBuilder out = new StringBuilder();
+        for (File entry : files) {
+            Path path = entry.toPath();
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walker = Files.walk(path)) {
+                    for (Path file : (Iterable<Path>) walker.sorted()::iterator) {
+                        append(out, file);
+                    }
+                }
+            } else if (Files.exists(path)) {
+                append(out, path);
+            }
+        }
+        return out.toString();
+    }
+
+    // The SHA-256 of the content of the file, or of the relative paths and contents of the files of the directory
+    static String contentOf(File entry) throws IOException {
+        Path path = entry.toPath();
+        if (!Files.isDirectory(path)) {
+            return sha256(path);
+        }
+        StringBuilder out = new StringBuilder();
+        try (Stream<Path> walker = Files.walk(path)) {
+            for (Path file : (Iterable<Path>) walker.filter(Files::isRegularFile).sorted()::iterator) {
+                out.append(path.relativize(file).toString().replace('\\', '/')).append('|').append(sha256(file)).append('\n');
+            }
+        }
+        return sha256(out.toString());
+    }
+
+    static String sha256(String text) {
+        return hex(digest().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = digest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return hex(digest.digest());
+    }
+
+    private static void append(StringBuilder out, Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        out.append(file).append('|').append(attributes.size()).append('|').append(attributes.lastModifiedTime().toMillis()).append('\n');
+    }
+
+    static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        StringBuilder out = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            out.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return out.toString();
+    }
+
+}
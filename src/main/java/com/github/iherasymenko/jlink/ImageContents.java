@@ -0,0 +1,149 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.GradleException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class ImageContents {
+
+    static final String MODULES_FILE = "lib/modules";
+
+    static final class Entry {
+        final long size;
+        final String hash;
+
+        Entry(long size, String hash) {
+            this.size = size;
+            this.hash = hash;
+        }
+    }
+
+    // module/path/inside/module, e.g. java.base/java/lang/Object.class
+    final SortedMap<String, Entry> resources;
+
+    // relative to the image root, lib/modules excluded
+    final SortedMap<String, Entry> files;
+
+    private ImageContents(SortedMap<String, Entry> resources, SortedMap<String, Entry> files) {
+        this.resources = resources;
+        this.files = files;
+    }
+
+    static ImageContents read(Path imageDir) throws IOException {
+        if (!Files.isRegularFile(imageDir.resolve(MODULES_FILE))) {
+            throw new GradleException("Not a jlink image, " + MODULES_FILE + " is missing: " + imageDir);
+        }
+        if (!Files.isRegularFile(imageDir.resolve("lib/jrt-fs.jar"))) {
+            throw new GradleException("Cannot read " + MODULES_FILE + " of " + imageDir + ", lib/jrt-fs.jar is missing");
+        }
+        SortedMap<String, Entry> resources;
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", imageDir.toString()))) {
+            Path modules = jrt.getPath("/modules");
+            resources = hashAll(modules, walkFiles(modules));
+        }
+        List<Path> plainFiles = walkFiles(imageDir)
+                .stream()
+                .filter(path -> !imageDir.relativize(path).toString().replace('\\', '/').equals(MODULES_FILE))
+                .collect(Collectors.toList());
+        SortedMap<String, Entry> files = hashAll(imageDir, plainFiles);
+        return new ImageContents(resources, files);
+    }
+
+    static Path findImageRoot(Path directory) throws IOException {
+        try (Stream<Path> walker = Files.walk(directory, 4)) {
+            return walker.filter(path -> Files.isRegularFile(path.resolve(MODULES_FILE)))
+                    .findFirst()
+                    .orElseThrow(() -> new GradleException("Cannot find a jlink image (" + MODULES_FILE + ") in " + directory + " or any of its subdirectories"));
+        }
+    }
+
+    static String moduleOf(String resource) {
+        return resource.substring(0, resource.indexOf('/'));
+    }
+
+    static String packageOf(String resource) {
+        int start = resource.indexOf('/');
+        int end = resource.lastIndexOf('/');
+        if (start == end) {
+            return null;
+        }
+        return resource.substring(0, start) + "/" + resource.substring(start + 1, end).replace('/', '.');
+    }
+
+    static Entry aggregate(SortedMap<String, Entry> entries) {
+        MessageDigest digest = Fingerprint.digest();
+        long size = 0;
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            size += entry.getValue().size;
+            digest.update((entry.getKey() + ":" + entry.getValue().hash + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return new Entry(size, Fingerprint.hex(digest.digest()));
+    }
+
+    private static List<Path> walkFiles(Path root) throws IOException {
+        try (Stream<Path> walker = Files.walk(root)) {
+            return walker.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+    }
+
+    private static SortedMap<String, Entry> hashAll(Path root, List<Path> paths) throws IOException {
+        try {
+            Map<String, Entry> hashed = paths.parallelStream()
+                    .collect(Collectors.toConcurrentMap(
+                            path -> root.relativize(path).toString().replace('\\', '/'),
+                            ImageContents::hash
+                    ));
+            return new TreeMap<>(hashed);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Entry hash(Path path) {
+        MessageDigest digest = Fingerprint.digest();
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream is = Files.newInputStream(path)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Entry(size, Fingerprint.hex(digest.digest()));
+    }
+
+}
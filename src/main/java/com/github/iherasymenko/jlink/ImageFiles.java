@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class ImageFiles {
+
+    private ImageFiles() {
+    }
+
+    // Hard links the files of the image into the output where possible, as the images are not modified once linked
+    static void link(Path image, Path output) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> walker = Files.walk(image)) {
+            sources = walker.collect(Collectors.toList());
+        }
+        for (Path source : sources) {
+            Path target = output.resolve(image.relativize(source).toString());
+            if (Files.isSymbolicLink(source)) {
+                Files.createSymbolicLink(target, Files.readSymbolicLink(source));
+            } else if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(target);
+            } else {
+                linkFile(source, target);
+            }
+        }
+    }
+
+    // Copies the image into the output, so that nothing written to the output later can change the image
+    static void copy(Path image, Path output) throws IOException {
+        List<Path> sources;
+        try (Stream<Path> walker = Files.walk(image)) {
+            sources = walker.collect(Collectors.toList());
+        }
+        for (Path source : sources) {
+            Path target = output.resolve(image.relativize(source).toString());
+            if (Files.isSymbolicLink(source)) {
+                Files.createSymbolicLink(target, Files.readSymbolicLink(source));
+            } else if (Files.isDirectory(source, LinkOption.NOFOLLOW_LINKS)) {
+                Files.createDirectories(target);
+            } else {
+                Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+
+    static void linkFile(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Another file store, or no hard links there
+            Files.copy(source, target, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+    }
+
+}
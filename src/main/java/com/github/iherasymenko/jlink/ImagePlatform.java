@@ -0,0 +1,51 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+// The platform (e.g. linux-amd64) an image is built for, as recorded by the ModuleTarget attribute of java.base.
+// The 'release' file of a linked image does not contain OS_NAME and OS_ARCH.
+final class ImagePlatform {
+
+    private ImagePlatform() {
+    }
+
+    static String of(Path image) throws IOException {
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", image.toString()))) {
+            return ModuleInfo.read(Files.readAllBytes(jrt.getPath("/modules/java.base/module-info.class"))).getTarget();
+        }
+    }
+
+    static boolean isHost(String platform) {
+        if (platform == null) {
+            return false;
+        }
+        int dash = platform.lastIndexOf('-');
+        if (dash == -1) {
+            return false;
+        }
+        return Os.normalizeName(platform.substring(0, dash)).equals(Os.normalizeName(System.getProperty("os.name")))
+                && Os.normalizeArch(platform.substring(dash + 1)).equals(Os.normalizeArch(System.getProperty("os.arch")));
+    }
+
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// The start of a relink-to-first-output cycle of 'imageRun --watch', marked by the 'image' task as it starts to link
+public abstract class ImageRunService implements BuildService<BuildServiceParameters.None> {
+
+    static final String NAME = "jlinkImageRuns";
+
+    private final AtomicLong cycleStart = new AtomicLong(-1);
+
+    void markCycleStart() {
+        cycleStart.set(System.nanoTime());
+    }
+
+    // System.nanoTime() of the cycle start, or -1 if the image has not been linked in this build, e.g. it is up-to-date
+    long getCycleStart() {
+        return cycleStart.get();
+    }
+
+}
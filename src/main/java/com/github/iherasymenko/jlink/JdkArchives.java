@@ -0,0 +1,518 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.GradleException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+// Reads the .zip and .tar.gz archives of the JDKs entry by entry, in a single pass over the archive
+final class JdkArchives {
+
+    static final int DEFAULT_FILE_MODE = 0644;
+
+    static final int DEFAULT_DIRECTORY_MODE = 0755;
+
+    private static final int BLOCK = 512;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR = 0x07064b50;
+
+    private static final int CENTRAL_DIRECTORY_HEADER = 0x02014b50;
+
+    private static final int UNIX = 3;
+
+    enum EntryType {
+        FILE, DIRECTORY, SYMBOLIC_LINK, HARD_LINK
+    }
+
+    interface Visitor {
+
+        // The names are relative, '/'-separated, and without the trailing '/'.
+        // The content is the one of the files only, and it does not have to be read to the end.
+        // Returns false to stop reading the archive.
+        boolean visit(String name, EntryType type, int mode, String linkName, InputStream content) throws IOException;
+
+    }
+
+    private JdkArchives() {
+    }
+
+    static void read(Path archive, Visitor visitor) throws IOException {
+        read(archive, null, visitor);
+    }
+
+    // Updates the digest with the whole archive, unless the visitor stops reading it
+    static void read(Path archive, MessageDigest digest, Visitor visitor) throws IOException {
+        String fileName = archive.getFileName().toString();
+        if (!fileName.endsWith(".zip") && !fileName.endsWith(".tar.gz") && !fileName.endsWith(".tgz")) {
+            throw new IOException("Unsupported archive format: " + fileName);
+        }
+        try (InputStream in = digest != null ? new DigestInputStream(Files.newInputStream(archive), digest) : Files.newInputStream(archive)) {
+            boolean completed = fileName.endsWith(".zip") ? readZip(archive, in, visitor) : readTarGz(in, visitor);
+            if (completed && digest != null) {
+                // What follows the entries, e.g. the central directory of a zip archive
+                in.transferTo(OutputStream.nullOutputStream());
+            }
+        }
+    }
+
+    private static boolean readZip(Path archive, InputStream in, Visitor visitor) throws IOException {
+        // The modes are only in the central directory at the end of the archive, which is small enough to be read upfront
+        Map<String, Integer> modes = zipModes(archive);
+        try (ZipInputStream zip = new ZipInputStream(new UnclosableInputStream(new BufferedInputStream(in, 1 << 16)))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String name = normalize(entry.getName());
+                if (name.isEmpty()) {
+                    continue;
+                }
+                Integer mode = modes.get(entry.getName());
+                boolean continueReading;
+                if (entry.isDirectory()) {
+                    continueReading = visitor.visit(name, EntryType.DIRECTORY, mode != null ? mode & 07777 : DEFAULT_DIRECTORY_MODE, null, null);
+                } else if (mode != null && (mode & 0170000) == 0120000) {
+                    String linkName = new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                    continueReading = visitor.visit(name, EntryType.SYMBOLIC_LINK, mode & 07777, linkName, null);
+                } else {
+                    continueReading = visitor.visit(name, EntryType.FILE, mode != null ? mode & 07777 : DEFAULT_FILE_MODE, null, new UnclosableInputStream(zip));
+                }
+                if (!continueReading) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    // The Unix modes of the entries created on Unix by their names
+    private static Map<String, Integer> zipModes(Path archive) throws IOException {
+        Map<String, Integer> out = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int tailSize = (int) Math.min(size, 0xFFFF + 22 + 20);
+            ByteBuffer tail = read(channel, size - tailSize, tailSize);
+            int end = -1;
+            for (int i = tailSize - 22; i >= 0; i--) {
+                if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY) {
+                    end = i;
+                    break;
+                }
+            }
+            if (end == -1) {
+                throw new IOException("Not a zip archive: " + archive);
+            }
+            long entries = tail.getShort(end + 10) & 0xFFFF;
+            long directorySize = tail.getInt(end + 12) & 0xFFFFFFFFL;
+            long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+            if (end >= 20 && tail.getInt(end - 20) == ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR) {
+                ByteBuffer zip64 = read(channel, tail.getLong(end - 20 + 8), 56);
+                entries = zip64.getLong(32);
+                directorySize = zip64.getLong(40);
+                directoryOffset = zip64.getLong(48);
+            }
+            ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+            int position = 0;
+            for (long i = 0; i < entries; i++) {
+                if (directory.getInt(position) != CENTRAL_DIRECTORY_HEADER) {
+                    throw new IOException("Corrupted central directory of " + archive);
+                }
+                int madeBy = (directory.getShort(position + 4) & 0xFFFF) >> 8;
+                int nameLength = directory.getShort(position + 28) & 0xFFFF;
+                int extraLength = directory.getShort(position + 30) & 0xFFFF;
+                int commentLength = directory.getShort(position + 32) & 0xFFFF;
+                int externalAttributes = directory.getInt(position + 38);
+                byte[] name = new byte[nameLength];
+                directory.position(position + 46);
+                directory.get(name);
+                int mode = externalAttributes >>> 16;
+                if (madeBy == UNIX && mode != 0) {
+                    out.put(new String(name, StandardCharsets.UTF_8), mode);
+                }
+                position += 46 + nameLength + extraLength + commentLength;
+            }
+        }
+        return out;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of the archive");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static boolean readTarGz(InputStream in, Visitor visitor) throws IOException {
+        try (InputStream tar = new BufferedInputStream(new GZIPInputStream(new UnclosableInputStream(in), 1 << 16), 1 << 16)) {
+            byte[] header = new byte[BLOCK];
+            String longName = null;
+            String longLinkName = null;
+            Map<String, String> pax = new HashMap<>();
+            while (readBlock(tar, header)) {
+                if (isZero(header)) {
+                    return true;
+                }
+                long size = pax.containsKey("size") ? Long.parseLong(pax.get("size")) : number(header, 124, 12);
+                char type = (char) header[156];
+                BoundedInputStream content = new BoundedInputStream(tar, size);
+                if (type == 'L' || type == 'K' || type == 'x' || type == 'g') {
+                    String value = new String(content.readAllBytes(), StandardCharsets.UTF_8);
+                    if (type == 'L') {
+                        longName = trimNul(value);
+                    } else if (type == 'K') {
+                        longLinkName = trimNul(value);
+                    } else if (type == 'x') {
+                        pax.putAll(paxRecords(value));
+                    }
+                    skipPadding(tar, size);
+                    continue;
+                }
+                String name = pax.containsKey("path") ? pax.get("path") : longName != null ? longName : ustarName(header);
+                String linkName = pax.containsKey("linkpath") ? pax.get("linkpath") : longLinkName != null ? longLinkName : string(header, 157, 100);
+                int mode = (int) number(header, 100, 8) & 07777;
+                longName = null;
+                longLinkName = null;
+                pax.clear();
+                name = normalize(name);
+                boolean continueReading = true;
+                if (!name.isEmpty()) {
+                    if (type == '0' || type == '\0' || type == '7') {
+                        continueReading = visitor.visit(name, EntryType.FILE, mode, null, content);
+                    } else if (type == '5') {
+                        continueReading = visitor.visit(name, EntryType.DIRECTORY, mode, null, null);
+                    } else if (type == '2') {
+                        continueReading = visitor.visit(name, EntryType.SYMBOLIC_LINK, mode, linkName, null);
+                    } else if (type == '1') {
+                        continueReading = visitor.visit(name, EntryType.HARD_LINK, mode, normalize(linkName), null);
+                    }
+                }
+                if (!continueReading) {
+                    return false;
+                }
+                content.skipRemaining();
+                skipPadding(tar, size);
+            }
+        }
+        return true;
+    }
+
+    // The release file of the JDK of the archive, and whether the JDK has jmods, read without extracting the archive:
+    // a .zip archive by its central directory, a .tar.gz one up to where both are found (or to its end if there are no jmods)
+    static Summary summarize(Path archive) throws IOException {
+        Summary summary = new Summary();
+        if (archive.getFileName().toString().endsWith(".zip")) {
+            try (ZipFile zip = new ZipFile(archive.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements() && !summary.isComplete()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = normalize(entry.getName());
+                    if (entry.isDirectory()) {
+                        summary.visitDirectory(name);
+                    } else {
+                        try (InputStream content = zip.getInputStream(entry)) {
+                            summary.visitFile(name, content);
+                        }
+                    }
+                }
+            }
+        } else {
+            read(archive, (name, type, mode, linkName, content) -> {
+                if (type == EntryType.DIRECTORY) {
+                    summary.visitDirectory(name);
+                } else if (type == EntryType.FILE) {
+                    summary.visitFile(name, content);
+                }
+                return !summary.isComplete();
+            });
+        }
+        if (summary.release == null) {
+            throw new GradleException("Cannot find a valid 'release' file in " + archive);
+        }
+        return summary;
+    }
+
+    static final class Summary {
+
+        private final Set<String> jmodsParents = new HashSet<>();
+
+        private String releaseParent;
+
+        private byte[] release;
+
+        private Summary() {
+        }
+
+        JdkRelease getRelease() {
+            return JdkRelease.read(release);
+        }
+
+        byte[] getReleaseContent() {
+            return release.clone();
+        }
+
+        boolean hasJmods() {
+            return release != null && jmodsParents.contains(releaseParent);
+        }
+
+        private boolean isComplete() {
+            return hasJmods();
+        }
+
+        private void visitDirectory(String name) {
+            visitPath(name + "/");
+        }
+
+        private void visitFile(String name, InputStream content) throws IOException {
+            visitPath(name);
+            String fileName = name.substring(name.lastIndexOf('/') + 1);
+            if (release == null && fileName.equals(JdkRelease.RELEASE_FILE)) {
+                byte[] bytes = content.readAllBytes();
+                // The first valid one, as JdkRelease.findReleaseFile does
+                if (JdkRelease.read(new ByteArrayInputStream(bytes)).getJavaVersion() != null) {
+                    release = bytes;
+                    releaseParent = name.substring(0, name.length() - fileName.length());
+                }
+            }
+        }
+
+        private void visitPath(String path) {
+            int jmods = ("/" + path).indexOf("/" + Jmods.JMODS_FOLDER + "/");
+            if (jmods != -1) {
+                jmodsParents.add(path.substring(0, jmods));
+            }
+        }
+
+    }
+
+    // The SHA-256 of the archive in a checksum file of the vendor, either the bare hash or the 'sha256sum' output
+    static String readSha256(Path sha256File, String archiveName) throws IOException {
+        List<String> hashes = new ArrayList<>();
+        for (String line : Files.readAllLines(sha256File, StandardCharsets.UTF_8)) {
+            String[] columns = line.trim().split("\\s+");
+            if (columns[0].matches("[0-9a-fA-F]{64}")) {
+                if (columns.length > 1 && columns[columns.length - 1].replace("*", "").equals(archiveName)) {
+                    return columns[0].toLowerCase(Locale.ROOT);
+                }
+                hashes.add(columns[0].toLowerCase(Locale.ROOT));
+            }
+        }
+        if (hashes.size() != 1) {
+            throw new IOException("Cannot find the SHA-256 of " + archiveName + " in " + sha256File);
+        }
+        return hashes.get(0);
+    }
+
+    static Set<PosixFilePermission> permissions(int mode) {
+        Set<PosixFilePermission> out = EnumSet.noneOf(PosixFilePermission.class);
+        PosixFilePermission[] permissions = PosixFilePermission.values();
+        // OWNER_READ is the first one, and it is the 0400 bit
+        for (int i = 0; i < permissions.length; i++) {
+            if ((mode & (0400 >> i)) != 0) {
+                out.add(permissions[i]);
+            }
+        }
+        return out;
+    }
+
+    private static String ustarName(byte[] header) {
+        String name = string(header, 0, 100);
+        String prefix = string(header, 345, 155);
+        boolean ustar = string(header, 257, 6).startsWith("ustar");
+        return ustar && !prefix.isEmpty() ? prefix + "/" + name : name;
+    }
+
+    private static Map<String, String> paxRecords(String records) {
+        Map<String, String> out = new HashMap<>();
+        int position = 0;
+        while (position < records.length()) {
+            int space = records.indexOf(' ', position);
+            int equals = records.indexOf('=', space);
+            int newLine = records.indexOf('\n', equals);
+            if (space == -1 || equals == -1 || newLine == -1) {
+                break;
+            }
+            out.put(records.substring(space + 1, equals), records.substring(equals + 1, newLine));
+            position = newLine + 1;
+        }
+        return out;
+    }
+
+    // Strips './' and the trailing '/', and rejects the names pointing outside the archive
+    private static String normalize(String name) throws IOException {
+        String out = name.replace('\\', '/');
+        while (out.startsWith("./")) {
+            out = out.substring(2);
+        }
+        while (out.endsWith("/")) {
+            out = out.substring(0, out.length() - 1);
+        }
+        if (out.startsWith("/") || out.equals("..") || out.startsWith("../") || out.contains("/../") || out.endsWith("/..")) {
+            throw new IOException("The archive entry points outside of the archive: " + name);
+        }
+        return out.equals(".") ? "" : out;
+    }
+
+    private static boolean readBlock(InputStream in, byte[] block) throws IOException {
+        int read = in.readNBytes(block, 0, BLOCK);
+        if (read == 0) {
+            return false;
+        }
+        if (read < BLOCK) {
+            throw new IOException("Unexpected end of the archive");
+        }
+        return true;
+    }
+
+    private static void skipPadding(InputStream in, long size) throws IOException {
+        new BoundedInputStream(in, (BLOCK - size % BLOCK) % BLOCK).skipRemaining();
+    }
+
+    private static boolean isZero(byte[] block) {
+        for (byte b : block) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Octal, or base-256 for the big numbers
+    private static long number(byte[] header, int offset, int length) {
+        if ((header[offset] & 0x80) != 0) {
+            long out = header[offset] & 0x7F;
+            for (int i = 1; i < length; i++) {
+                out = (out << 8) | (header[offset + i] & 0xFF);
+            }
+            return out;
+        }
+        String value = string(header, offset, length).trim();
+        return value.isEmpty() ? 0 : Long.parseLong(value, 8);
+    }
+
+    private static String string(byte[] header, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && header[end] != 0) {
+            end++;
+        }
+        return new String(header, offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return nul == -1 ? value : value.substring(0, nul);
+    }
+
+    private static final class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        private BoundedInputStream(InputStream in, long size) {
+            super(in);
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int out = super.read();
+            if (out != -1) {
+                remaining--;
+            }
+            return out;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining == 0) {
+                return -1;
+            }
+            int out = super.read(b, off, (int) Math.min(len, remaining));
+            if (out > 0) {
+                remaining -= out;
+            }
+            return out;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long out = super.skip(Math.min(n, remaining));
+            remaining -= out;
+            return out;
+        }
+
+        @Override
+        public void close() {
+            // The archive stays open
+        }
+
+        private void skipRemaining() throws IOException {
+            while (remaining > 0) {
+                if (skip(remaining) == 0 && read() == -1) {
+                    throw new IOException("Unexpected end of the archive");
+                }
+            }
+        }
+
+    }
+
+    private static final class UnclosableInputStream extends FilterInputStream {
+
+        private UnclosableInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+            // The archive stays open
+        }
+
+    }
+
+}
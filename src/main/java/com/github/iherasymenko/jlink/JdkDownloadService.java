@@ -0,0 +1,102 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The JDK archives downloaded from their URLs into the Gradle user home, once per machine. Several daemons downloading
+// the same URL are serialized by a lock file, and the second one finds the archive downloaded already.
+public abstract class JdkDownloadService implements BuildService<JdkDownloadService.Parameters> {
+
+    static final String NAME = "jlinkJdkDownloads";
+
+    static final String FOLDER = "caches/jlink-gradle-plugin/downloads";
+
+    private static final String LOCK_FILE = "download.lock";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        DirectoryProperty getDownloadDirectory();
+
+        Property<Integer> getConnections();
+
+        // With --offline, only the archives downloaded by the previous builds are used
+        Property<Boolean> getOffline();
+
+    }
+
+    private final Map<String, CompletableFuture<File>> downloads = new ConcurrentHashMap<>();
+
+    File download(String url) throws IOException {
+        CompletableFuture<File> downloaded = new CompletableFuture<>();
+        CompletableFuture<File> existing = downloads.putIfAbsent(url, downloaded);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            downloaded.complete(doDownload(URI.create(url)));
+        } catch (IOException | RuntimeException e) {
+            downloaded.completeExceptionally(e);
+            throw e;
+        }
+        return downloaded.join();
+    }
+
+    private File doDownload(URI uri) throws IOException {
+        Path folder = getParameters().getDownloadDirectory().get().getAsFile().toPath().resolve(Fingerprint.sha256(uri.toString()));
+        Path archive = folder.resolve(fileName(uri));
+        if (Files.isRegularFile(archive)) {
+            return archive.toFile();
+        }
+        Files.createDirectories(folder);
+        try (FileChannel channel = FileChannel.open(folder.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                if (!Files.isRegularFile(archive)) {
+                    if (getParameters().getOffline().getOrElse(false)) {
+                        throw new GradleException("Cannot download " + uri + " in offline mode, run the build once without --offline to download it into " + folder);
+                    }
+                    RangedDownload.download(uri, archive, getParameters().getConnections().get());
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        return archive.toFile();
+    }
+
+    static String fileName(URI uri) {
+        String path = uri.getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.logging.Logging;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// What the jmods of a JDK contain: the module-info.class, the packages, the native libraries, and the sizes of every module.
+// It is read from the jmods once, in parallel, and then persisted, so that the module graph, the native libraries, etc.
+// do not open every jmod of the JDK again.
+final class JdkModuleCatalog {
+
+    private static final int VERSION = 1;
+
+    private static final String MODULE_INFO = "module-info.class";
+
+    private final String stamp;
+
+    private final SortedMap<String, Module> modules;
+
+    private JdkModuleCatalog(String stamp, SortedMap<String, Module> modules) {
+        this.stamp = stamp;
+        this.modules = Collections.unmodifiableSortedMap(modules);
+    }
+
+    static final class Module {
+
+        private final byte[] moduleInfoClass;
+
+        private final ModuleInfo moduleInfo;
+
+        private final SortedSet<String> packages;
+
+        private final SortedMap<String, List<String>> nativeLibraries;
+
+        private final long size;
+
+        private final long uncompressedSize;
+
+        private Module(byte[] moduleInfoClass, SortedSet<String> packages, SortedMap<String, List<String>> nativeLibraries, long size, long uncompressedSize) throws IOException {
+            this.moduleInfoClass = moduleInfoClass;
+            this.moduleInfo = ModuleInfo.read(moduleInfoClass);
+            this.packages = packages;
+            this.nativeLibraries = nativeLibraries;
+            this.size = size;
+            this.uncompressedSize = uncompressedSize;
+        }
+
+        ModuleInfo getModuleInfo() {
+            return moduleInfo;
+        }
+
+        // Package names, e.g. java.lang, of the 'classes' section
+        SortedSet<String> getPackages() {
+            return packages;
+        }
+
+        // File names of the native libraries of the 'lib' and 'bin' sections mapped to the file names of the libraries they are linked against
+        SortedMap<String, List<String>> getNativeLibraries() {
+            return nativeLibraries;
+        }
+
+        // The size of the jmod file
+        long getSize() {
+            return size;
+        }
+
+        // The size of all the entries of the jmod
+        long getUncompressedSize() {
+            return uncompressedSize;
+        }
+
+    }
+
+    SortedMap<String, Module> getModules() {
+        return modules;
+    }
+
+    Map<String, ModuleInfo> getModuleInfos() {
+        SortedMap<String, ModuleInfo> out = new TreeMap<>();
+        modules.forEach((name, module) -> out.put(name, module.getModuleInfo()));
+        return out;
+    }
+
+    SortedMap<String, List<String>> getNativeLibraries() {
+        SortedMap<String, List<String>> out = new TreeMap<>();
+        for (Module module : modules.values()) {
+            out.putAll(module.getNativeLibraries());
+        }
+        return out;
+    }
+
+    // The catalog persisted in the file, if it is of the jmods as they are now, or the one read from the jmods otherwise.
+    // The file is replaced atomically, hence concurrent builds at worst read the jmods both.
+    static JdkModuleCatalog of(Path jmodsFolder, Path catalogFile) throws IOException {
+        String stamp = Fingerprint.sha256(Fingerprint.of(List.of(jmodsFolder.toFile())));
+        if (catalogFile != null && Files.isRegularFile(catalogFile)) {
+            try {
+                JdkModuleCatalog catalog = read(catalogFile);
+                if (catalog.stamp.equals(stamp)) {
+                    return catalog;
+                }
+            } catch (IOException e) {
+                // Written by another version of the plugin, or damaged, and read from the jmods once more
+            }
+        }
+        long start = System.nanoTime();
+        JdkModuleCatalog catalog = new JdkModuleCatalog(stamp, readJmods(jmodsFolder));
+        Logging.getLogger(JdkModuleCatalog.class).info("Read the module catalog of {} from {} jmods in {} ms", jmodsFolder, catalog.modules.size(), (System.nanoTime() - start) / 1_000_000);
+        if (catalogFile != null) {
+            catalog.write(catalogFile);
+        }
+        return catalog;
+    }
+
+    private static SortedMap<String, Module> readJmods(Path jmodsFolder) throws IOException {
+        List<Path> jmods = Jmods.list(jmodsFolder);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(jmods.size(), Runtime.getRuntime().availableProcessors())), runnable -> {
+            Thread thread = new Thread(runnable, "jlink module catalog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Module>> futures = new ArrayList<>();
+            for (Path jmod : jmods) {
+                futures.add(executor.submit(() -> readJmod(jmod)));
+            }
+            SortedMap<String, Module> out = new TreeMap<>();
+            for (Future<Module> future : futures) {
+                Module module = future.get();
+                out.put(module.getModuleInfo().getName(), module);
+            }
+            return out;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Cannot read the jmods of " + jmodsFolder, cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the jmods of " + jmodsFolder, e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Module readJmod(Path jmod) throws IOException {
+        byte[] moduleInfoClass = null;
+        SortedSet<String> packages = new TreeSet<>();
+        SortedMap<String, List<String>> nativeLibraries = new TreeMap<>();
+        long uncompressedSize = 0;
+        try (ZipFile zip = new ZipFile(jmod.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                uncompressedSize += Math.max(entry.getSize(), 0);
+                if (name.equals(Jmods.CLASSES_SECTION + MODULE_INFO)) {
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        moduleInfoClass = in.readAllBytes();
+                    }
+                } else if (name.startsWith(Jmods.CLASSES_SECTION) && name.endsWith(".class") && name.lastIndexOf('/') > Jmods.CLASSES_SECTION.length()) {
+                    packages.add(name.substring(Jmods.CLASSES_SECTION.length(), name.lastIndexOf('/')).replace('/', '.'));
+                } else if (name.startsWith("lib/") || name.startsWith("bin/")) {
+                    String fileName = name.substring(name.lastIndexOf('/') + 1);
+                    if (Os.libraryBaseName(fileName) != null) {
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            nativeLibraries.put(fileName, NativeLibraries.dependencies(in.readAllBytes()));
+                        }
+                    }
+                }
+            }
+        }
+        if (moduleInfoClass == null) {
+            throw new IOException(MODULE_INFO + " is not found in " + jmod);
+        }
+        return new Module(moduleInfoClass, packages, nativeLibraries, Files.size(jmod), uncompressedSize);
+    }
+
+    private static JdkModuleCatalog read(Path catalogFile) throws IOException {
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(catalogFile)))) {
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported version of " + catalogFile);
+            }
+            String stamp = in.readUTF();
+            SortedMap<String, Module> modules = new TreeMap<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                byte[] moduleInfoClass = new byte[in.readInt()];
+                in.readFully(moduleInfoClass);
+                SortedSet<String> packages = new TreeSet<>(readStrings(in));
+                SortedMap<String, List<String>> nativeLibraries = new TreeMap<>();
+                for (int j = in.readInt(); j > 0; j--) {
+                    nativeLibraries.put(in.readUTF(), readStrings(in));
+                }
+                Module module = new Module(moduleInfoClass, packages, nativeLibraries, in.readLong(), in.readLong());
+                modules.put(module.getModuleInfo().getName(), module);
+            }
+            return new JdkModuleCatalog(stamp, modules);
+        }
+    }
+
+    private void write(Path catalogFile) throws IOException {
+        Files.createDirectories(catalogFile.getParent());
+        Path temporary = Files.createTempFile(catalogFile.getParent(), catalogFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(VERSION);
+                out.writeUTF(stamp);
+                out.writeInt(modules.size());
+                for (Module module : modules.values()) {
+                    out.writeInt(module.moduleInfoClass.length);
+                    out.write(module.moduleInfoClass);
+                    writeStrings(out, module.packages);
+                    out.writeInt(module.nativeLibraries.size());
+                    for (Map.Entry<String, List<String>> library : module.nativeLibraries.entrySet()) {
+                        out.writeUTF(library.getKey());
+                        writeStrings(out, library.getValue());
+                    }
+                    out.writeLong(module.size);
+                    out.writeLong(module.uncompressedSize);
+                }
+            }
+            Files.move(temporary, catalogFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        List<String> out = new ArrayList<>();
+        for (int i = in.readInt(); i > 0; i--) {
+            out.add(in.readUTF());
+        }
+        return out;
+    }
+
+    private static void writeStrings(DataOutputStream out, Collection<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String string : strings) {
+            out.writeUTF(string);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.GradleException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+final class JdkRelease {
+
+    static final String RELEASE_FILE = "release";
+
+    private static final Pattern MAJOR_VERSION = Pattern.compile("^(\\d+)");
+
+    private final Properties properties;
+
+    private JdkRelease(Properties properties) {
+        this.properties = properties;
+    }
+
+    static JdkRelease read(InputStream is) throws IOException {
+        Properties properties = new Properties();
+        properties.load(is);
+        return new JdkRelease(properties);
+    }
+
+    static JdkRelease read(byte[] release) {
+        try {
+            return read(new ByteArrayInputStream(release));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static JdkRelease read(Path releaseFile) throws IOException {
+        try (InputStream is = Files.newInputStream(releaseFile)) {
+            return read(is);
+        }
+    }
+
+    static Path findReleaseFile(Path directory) throws IOException {
+        List<Path> releaseFiles;
+        try (Stream<Path> walker = Files.walk(directory)) {
+            releaseFiles = walker.filter(path -> path.getFileName().toString().equals(RELEASE_FILE))
+                    .collect(Collectors.toList());
+        }
+        for (Path releaseFile : releaseFiles) {
+            try {
+                if (read(releaseFile).getJavaVersion() != null) {
+                    return releaseFile;
+                }
+            } catch (IOException ignored) {
+                // not a release file, e.g. a directory with the same name
+            }
+        }
+        throw new GradleException("Cannot find a valid 'release' file in " + directory + " or any of its subdirectories");
+    }
+
+    String get(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    String getJavaVersion() {
+        return get("JAVA_VERSION");
+    }
+
+    int getMajorVersion() {
+        String version = getJavaVersion();
+        if (version == null) {
+            return -1;
+        }
+        if (version.startsWith("1.")) {
+            version = version.substring(2);
+        }
+        Matcher matcher = MAJOR_VERSION.matcher(version);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    String getOsName() {
+        return get("OS_NAME");
+    }
+
+    String getOsArch() {
+        return get("OS_ARCH");
+    }
+
+    String getImplementor() {
+        return get("IMPLEMENTOR");
+    }
+
+    List<String> getModules() {
+        String modules = get("MODULES");
+        if (modules == null || modules.isBlank()) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList(modules.trim().split("\\s+"));
+    }
+
+    boolean matchesHost() {
+        return Os.normalizeName(getOsName()).equals(Os.normalizeName(System.getProperty("os.name")))
+                && Os.normalizeArch(getOsArch()).equals(Os.normalizeArch(System.getProperty("os.arch")));
+    }
+
+    @Override
+    public String toString() {
+        return getJavaVersion() + ", " + getOsName() + "/" + getOsArch();
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Objects;
+
+// The release files of the JDK archives extracted before, kept in the Gradle user home. They tell whether an archive contains
+// the very same JDK as a toolchain without downloading it again.
+final class JdkReleaseIndex {
+
+    private static final String FOLDER = "caches/jlink-gradle-plugin/jdk-releases";
+
+    private static final List<String> IDENTITY = List.of("IMPLEMENTOR", "IMPLEMENTOR_VERSION", "JAVA_VERSION", "JAVA_RUNTIME_VERSION", "OS_NAME", "OS_ARCH");
+
+    private JdkReleaseIndex() {
+    }
+
+    static File entry(File gradleUserHome, String group, String jdkArchive) {
+        return new File(gradleUserHome, FOLDER + "/" + group + "/" + jdkArchive + "." + JdkRelease.RELEASE_FILE);
+    }
+
+    static void record(File entry, Path releaseFile) throws IOException {
+        record(entry, Files.readAllBytes(releaseFile));
+    }
+
+    static void record(File entry, byte[] release) throws IOException {
+        Path target = entry.toPath();
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(target.getParent(), entry.getName(), ".tmp");
+        Files.write(temporary, release);
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Whether the JDK of an archive is the same as the given toolchain, by their release files. The jmods (or the lack of them)
+    // are the same as well, and a linkable run-time image can link itself.
+    static boolean matches(JdkRelease archived, JdkRelease toolchain) {
+        if (archived.getJavaVersion() == null || archived.getOsName() == null || archived.getOsArch() == null) {
+            return false;
+        }
+        for (String key : IDENTITY) {
+            if (!Objects.equals(archived.get(key), toolchain.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The cross-target JDKs extracted into the Gradle user home by the SHA-256 of their archives, shared by all the builds of the machine.
+// A JDK in use is guarded by a shared lock on its lock file until the end of the build; the least recently used JDKs that
+// nobody uses are evicted once the store exceeds its size.
+public abstract class JdkStore implements BuildService<JdkStore.Parameters>, AutoCloseable {
+
+    static final String NAME = "jlinkJdkStore";
+
+    static final String FOLDER = "caches/jlink-gradle-plugin/jdks";
+
+    // The size of an extracted JDK, written once it is complete. Its modification time is the last use of the JDK.
+    private static final String COMPLETE_SUFFIX = ".complete";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final String STORE_LOCK = "store.lock";
+
+    private static final String CONTENT_FOLDER = "content";
+
+    // The SHA-256 of the archives by their locations, sizes and modification times
+    private static final String DIGESTS_FOLDER = "digests";
+
+    private static final int MAX_LINK_DEPTH = 8;
+
+    private static final Logger LOGGER = Logging.getLogger(JdkStore.class);
+
+    public interface Parameters extends BuildServiceParameters {
+
+        DirectoryProperty getStoreDirectory();
+
+        // Bytes
+        Property<Long> getMaxSize();
+
+    }
+
+    private final Map<String, CompletableFuture<Path>> jdks = new ConcurrentHashMap<>();
+
+    private final Map<String, FileChannel> locks = new ConcurrentHashMap<>();
+
+    private FileChannel storeLock;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    private final AtomicInteger evictions = new AtomicInteger();
+
+    private final AtomicLong evictedBytes = new AtomicLong();
+
+    interface ArchiveCheck {
+
+        // Fails if the archive is not worth extracting
+        void check(File archive) throws IOException;
+
+    }
+
+    // The directory the archive is extracted to. It stays in the store until the end of the build.
+    // The expected SHA-256 of the archive, if any, is verified while it is extracted, and it saves hashing the archive upfront.
+    // The check runs only if the archive is not extracted yet.
+    Path acquire(File archive, String expectedSha256, ArchiveCheck check) throws IOException {
+        String key = expectedSha256 != null ? expectedSha256.toLowerCase(Locale.ROOT) : sha256(archive);
+        CompletableFuture<Path> acquired = new CompletableFuture<>();
+        CompletableFuture<Path> existing = jdks.putIfAbsent(key, acquired);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            acquired.complete(acquire(key, archive, expectedSha256 != null, check));
+        } catch (IOException | RuntimeException e) {
+            acquired.completeExceptionally(e);
+            throw e;
+        }
+        return acquired.join();
+    }
+
+    // Hashing a JDK archive takes seconds, so the digest is computed once per version of the archive file
+    private String sha256(File archive) throws IOException {
+        Path store = getParameters().getStoreDirectory().get().getAsFile().toPath();
+        String fingerprint = Fingerprint.sha256(archive.getAbsolutePath() + '\n' + archive.length() + '\n' + archive.lastModified());
+        Path cached = store.resolve(DIGESTS_FOLDER).resolve(fingerprint);
+        if (Files.isRegularFile(cached)) {
+            return new String(Files.readAllBytes(cached), StandardCharsets.UTF_8);
+        }
+        LOGGER.info("Computing the SHA-256 of {}", archive.getName());
+        String sha256 = Fingerprint.sha256(archive.toPath());
+        Files.createDirectories(cached.getParent());
+        // Written under a temporary name first, as another build may be reading it
+        Path temporary = cached.resolveSibling(fingerprint + ".tmp-" + UUID.randomUUID());
+        Files.write(temporary, sha256.getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return sha256;
+    }
+
+    private Path acquire(String key, File archive, boolean verify, ArchiveCheck check) throws IOException {
+        Path store = getParameters().getStoreDirectory().get().getAsFile().toPath();
+        Files.createDirectories(store);
+        Path jdk = store.resolve(key);
+        Path complete = store.resolve(key + COMPLETE_SUFFIX);
+        FileChannel channel = FileChannel.open(store.resolve(key + LOCK_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean extracted = false;
+        try {
+            while (true) {
+                FileLock shared = channel.lock(0, Long.MAX_VALUE, true);
+                if (Files.exists(complete)) {
+                    Files.setLastModifiedTime(complete, FileTime.fromMillis(System.currentTimeMillis()));
+                    locks.put(key, channel);
+                    if (!extracted) {
+                        hits.incrementAndGet();
+                        LOGGER.info("Using {} extracted to {}", archive.getName(), jdk);
+                    }
+                    break;
+                }
+                shared.release();
+                // The exclusive lock is released before taking the shared one again, hence an eviction in between extracts it once more
+                FileLock exclusive = channel.lock();
+                try {
+                    if (!Files.exists(complete)) {
+                        check.check(archive);
+                        lockStore(store);
+                        extract(archive, verify ? key : null, store, jdk, complete);
+                        extracted = true;
+                    }
+                } finally {
+                    exclusive.release();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (extracted) {
+            misses.incrementAndGet();
+        }
+        return jdk;
+    }
+
+    // The content store is not collected while any build extracts JDKs. The lock is held until the end of the build,
+    // as file locks of a JVM must not overlap.
+    private synchronized void lockStore(Path store) throws IOException {
+        if (storeLock == null) {
+            storeLock = FileChannel.open(store.resolve(STORE_LOCK), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            storeLock.lock(0, Long.MAX_VALUE, true);
+        }
+    }
+
+    private static void extract(File archive, String expectedSha256, Path store, Path jdk, Path complete) throws IOException {
+        LOGGER.lifecycle("Extracting {} to the JDK store", archive.getName());
+        // Leftovers of an interrupted extraction are replaced
+        delete(jdk);
+        Files.createDirectories(jdk);
+        ContentStore contentStore = ContentStore.of(store.resolve(CONTENT_FOLDER));
+        boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        Map<String, String> symbolicLinks = new LinkedHashMap<>();
+        Map<String, String> links = new LinkedHashMap<>();
+        Map<String, Integer> directoryModes = new TreeMap<>(Comparator.reverseOrder());
+        MessageDigest digest = expectedSha256 != null ? Fingerprint.digest() : null;
+        JdkArchives.read(archive.toPath(), digest, (name, type, mode, linkName, content) -> {
+            Path target = jdk.resolve(name);
+            switch (type) {
+                case DIRECTORY:
+                    Files.createDirectories(target);
+                    directoryModes.put(name, mode);
+                    break;
+                case FILE:
+                    Files.createDirectories(target.getParent());
+                    if (contentStore != null) {
+                        ImageFiles.linkFile(contentStore.write(content, mode), target);
+                    } else {
+                        Files.copy(content, target);
+                        if (posix) {
+                            Files.setPosixFilePermissions(target, JdkArchives.permissions(mode));
+                        }
+                    }
+                    break;
+                case SYMBOLIC_LINK:
+                    symbolicLinks.put(name, linkName);
+                    break;
+                case HARD_LINK:
+                    links.put(name, linkName);
+                    break;
+            }
+            return true;
+        });
+        if (digest != null) {
+            String actualSha256 = Fingerprint.hex(digest.digest());
+            if (!actualSha256.equals(expectedSha256)) {
+                delete(jdk);
+                throw new GradleException("SHA-256 of " + archive + " is " + actualSha256 + ", but " + expectedSha256 + " is expected");
+            }
+        }
+        for (Map.Entry<String, String> symbolicLink : symbolicLinks.entrySet()) {
+            String name = symbolicLink.getKey();
+            String resolved = resolveSibling(name, symbolicLink.getValue());
+            if (resolved == null) {
+                links.put(name, null);
+                continue;
+            }
+            Path target = jdk.resolve(name);
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createSymbolicLink(target, target.getFileSystem().getPath(symbolicLink.getValue()));
+            } catch (IOException | UnsupportedOperationException e) {
+                // E.g. no privilege to create symbolic links on Windows
+                LOGGER.debug("Cannot create the symbolic link {}, copying its target instead", target, e);
+                links.put(name, resolved);
+            }
+        }
+        // The hard links, and the symbolic links that could not be created, are hard links to (copies of) their targets
+        for (int pass = 0; !links.isEmpty() && pass < MAX_LINK_DEPTH; pass++) {
+            for (Iterator<Map.Entry<String, String>> iterator = links.entrySet().iterator(); iterator.hasNext(); ) {
+                Map.Entry<String, String> link = iterator.next();
+                if (link.getValue() == null || links.containsKey(link.getValue())) {
+                    continue;
+                }
+                Path source = jdk.resolve(link.getValue());
+                Path target = jdk.resolve(link.getKey());
+                Files.createDirectories(target.getParent());
+                if (Files.isDirectory(source)) {
+                    ImageFiles.link(source, target);
+                } else if (Files.exists(source)) {
+                    ImageFiles.linkFile(source, target);
+                }
+                iterator.remove();
+            }
+        }
+        // The modes of the directories are set once nothing is written to them anymore, the deepest ones first
+        if (posix) {
+            for (Map.Entry<String, Integer> directoryMode : directoryModes.entrySet()) {
+                Files.setPosixFilePermissions(jdk.resolve(directoryMode.getKey()), JdkArchives.permissions(directoryMode.getValue()));
+            }
+        }
+        if (!links.isEmpty()) {
+            LOGGER.warn("The links {} of {} point outside of the archive or to each other, and they are not extracted", links.keySet(), archive.getName());
+        }
+        if (contentStore != null && contentStore.getReusedFiles() > 0) {
+            LOGGER.info("{} files ({} bytes) of {} are shared with the other JDKs of the store", contentStore.getReusedFiles(), contentStore.getReusedBytes(), archive.getName());
+        }
+        Files.write(complete, Long.toString(size(jdk)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // The name of the target of a symbolic link, or null if it points outside of the archive, e.g. an absolute link
+    private static String resolveSibling(String name, String linkName) {
+        if (linkName.startsWith("/")) {
+            return null;
+        }
+        Deque<String> out = new ArrayDeque<>(Arrays.asList(name.split("/")));
+        out.removeLast();
+        for (String segment : linkName.split("/")) {
+            if (segment.equals("..")) {
+                if (out.isEmpty()) {
+                    return null;
+                }
+                out.removeLast();
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                out.addLast(segment);
+            }
+        }
+        return String.join("/", out);
+    }
+
+    // Evicts the least recently used JDKs nobody holds a lock on until the store fits into its size, unless
+    // another build is extracting JDKs. The JDKs used by the build are kept, even if they alone do not fit.
+    private void evict(Path store) throws IOException {
+        long maxSize = getParameters().getMaxSize().get();
+        try (FileChannel storeChannel = FileChannel.open(store.resolve(STORE_LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = storeChannel.tryLock()) {
+            if (lock == null) {
+                LOGGER.info("The JDK store {} is not cleaned up, as another build is extracting JDKs to it", store);
+                return;
+            }
+            List<Path> entries;
+            try (Stream<Path> files = Files.list(store)) {
+                entries = files.filter(file -> file.getFileName().toString().endsWith(COMPLETE_SUFFIX)).collect(Collectors.toList());
+            }
+            List<StoredJdk> stored = new ArrayList<>();
+            long total = 0;
+            for (Path complete : entries) {
+                StoredJdk jdk = new StoredJdk(complete);
+                stored.add(jdk);
+                total += jdk.size;
+            }
+            stored.sort(Comparator.comparing(jdk -> jdk.lastUse));
+            ContentStore contentStore = ContentStore.of(store.resolve(CONTENT_FOLDER));
+            boolean evicted = false;
+            for (StoredJdk jdk : stored) {
+                if (total <= maxSize) {
+                    break;
+                }
+                if (jdks.containsKey(jdk.key) || !evict(store, jdk)) {
+                    continue;
+                }
+                total -= jdk.size;
+                evicted = true;
+                evictions.incrementAndGet();
+                evictedBytes.addAndGet(jdk.size);
+            }
+            if (contentStore != null && evicted) {
+                contentStore.collectGarbage();
+            }
+            if (total > maxSize) {
+                LOGGER.warn("The JDK store {} takes {} bytes, which is more than {} bytes, but the rest of the JDKs are in use by this or other builds", store, total, maxSize);
+            }
+        }
+    }
+
+    private static boolean evict(Path store, StoredJdk jdk) throws IOException {
+        try (FileChannel channel = FileChannel.open(store.resolve(jdk.key + LOCK_SUFFIX), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                return false;
+            }
+            if (lock == null) {
+                return false;
+            }
+            try (lock) {
+                LOGGER.info("Evicting {} from the JDK store, last used at {}", jdk.key, jdk.lastUse);
+                Files.delete(store.resolve(jdk.key + COMPLETE_SUFFIX));
+                delete(store.resolve(jdk.key));
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel channel : locks.values()) {
+            // Releases the shared lock as well
+            channel.close();
+        }
+        if (storeLock != null) {
+            storeLock.close();
+        }
+        if (jdks.isEmpty()) {
+            return;
+        }
+        evict(getParameters().getStoreDirectory().get().getAsFile().toPath());
+        if (hits.get() + misses.get() > 0) {
+            LOGGER.lifecycle("JDK store: {} hit(s), {} miss(es), {} evicted ({} bytes)", hits.get(), misses.get(), evictions.get(), evictedBytes.get());
+        }
+    }
+
+    private static long size(Path folder) throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void delete(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walker = Files.walk(folder)) {
+            files = walker.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            if (Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS)) {
+                // The directories of the archive may be read-only
+                file.toFile().setWritable(true);
+            }
+        }
+        for (Path file : files) {
+            Files.delete(file);
+        }
+    }
+
+    private static final class StoredJdk {
+
+        private final String key;
+
+        private final long size;
+
+        private final FileTime lastUse;
+
+        private StoredJdk(Path complete) throws IOException {
+            String fileName = complete.getFileName().toString();
+            this.key = fileName.substring(0, fileName.length() - COMPLETE_SUFFIX.length());
+            this.size = Long.parseLong(new String(Files.readAllBytes(complete), StandardCharsets.UTF_8).trim());
+            this.lastUse = Files.getLastModifiedTime(complete);
+        }
+
+    }
+
+}
@@ -19,15 +19,26 @@ import org.gradle.api.NamedDomainObjectContainer;
 import org.gradle.api.NonNullApi;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
+import org.gradle.api.Transformer;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
 import org.gradle.api.artifacts.dsl.DependencyHandler;
-import org.gradle.api.attributes.Attribute;
 import org.gradle.api.file.Directory;
 import org.gradle.api.plugins.*;
 import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.Sync;
 import org.gradle.api.tasks.TaskContainer;
 import org.gradle.api.tasks.TaskProvider;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
+import org.gradle.jvm.toolchain.JavaLauncher;
+import org.gradle.jvm.toolchain.JavaToolchainService;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -40,12 +51,41 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
 
     private static final String IMAGES_OUTPUT_FOLDER = "images";
 
+    private static final String REPORTS_OUTPUT_FOLDER = "reports/jlink";
+
+    private static final String TRAINING_OUTPUT_FOLDER = "jlink/training";
+
+    private static final String TRAINING_VERIFICATION_OUTPUT_FOLDER = "jlink/training-verification";
+
+    private static final String EXPLODED_MODULE_OUTPUT_FOLDER = "jlink/exploded-module";
+
+    private static final String IMAGE_RUN_OUTPUT_FOLDER = "jlink/run";
+
+    private static final String JDK_STORE_MAX_SIZE_PROPERTY = "jlink.jdkStoreMaxSize";
+
+    private static final long DEFAULT_JDK_STORE_MAX_SIZE = 5_000_000_000L;
+
+    private static final String LOCAL_IMAGE_STORE_MAX_SIZE_PROPERTY = "jlink.localImageStoreMaxSize";
+
+    private static final long DEFAULT_LOCAL_IMAGE_STORE_MAX_SIZE = 2_000_000_000L;
+
     public void apply(Project project) {
         PluginContainer plugins = project.getPlugins();
         TaskContainer tasks = project.getTasks();
 
         JlinkApplicationPluginExtension jlinkApplication = project.getExtensions().create("jlinkApplication", JlinkApplicationPluginExtension.class);
         jlinkApplication.getApplicationName().convention(project.provider(project::getName));
+        jlinkApplication.getPruneNativeLibraries().convention(false);
+        jlinkApplication.getIncludeTrainedLocales().convention(false);
+        jlinkApplication.getGenerateJliClasses().convention(false);
+        jlinkApplication.getIncludeTrainedCdsClasses().convention(false);
+        jlinkApplication.getUseLocalImageStore().convention(false);
+        jlinkApplication.getExplodedModule().convention(false);
+        jlinkApplication.getDevRuntime().convention(false);
+        jlinkApplication.getDownloadConnections().convention(4);
+        // The store is shared by the builds of the machine, hence its size can be set in ~/.gradle/gradle.properties as well
+        jlinkApplication.getJdkStoreMaxSize().convention(project.getProviders().gradleProperty(JDK_STORE_MAX_SIZE_PROPERTY).map(Long::parseLong).orElse(DEFAULT_JDK_STORE_MAX_SIZE));
+        jlinkApplication.getLocalImageStoreMaxSize().convention(project.getProviders().gradleProperty(LOCAL_IMAGE_STORE_MAX_SIZE_PROPERTY).map(Long::parseLong).orElse(DEFAULT_LOCAL_IMAGE_STORE_MAX_SIZE));
 
         NamedDomainObjectContainer<JlinkImage> jlinkImages = project.container(JlinkImage.class, name -> project.getObjects().newInstance(JlinkImage.class, name));
         project.getExtensions().add("jlinkImages", jlinkImages);
@@ -59,6 +99,35 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
         });
 
         plugins.withType(JavaPlugin.class, javaPlugin -> {
+            Provider<ModuleAnalysisService> moduleAnalysis = project.getGradle().getSharedServices().registerIfAbsent(ModuleAnalysisService.NAME, ModuleAnalysisService.class, spec -> {
+                spec.getParameters().getCatalogDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), ModuleAnalysisService.CATALOG_FOLDER));
+            });
+            Provider<JlinkInvocationService> jlinkInvocations = project.getGradle().getSharedServices().registerIfAbsent(JlinkInvocationService.NAME, JlinkInvocationService.class, spec -> {
+            });
+            Provider<ImageRunService> imageRuns = project.getGradle().getSharedServices().registerIfAbsent(ImageRunService.NAME, ImageRunService.class, spec -> {
+            });
+            Provider<JdkDownloadService> jdkDownloads = project.getGradle().getSharedServices().registerIfAbsent(JdkDownloadService.NAME, JdkDownloadService.class, spec -> {
+                spec.getParameters().getDownloadDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), JdkDownloadService.FOLDER));
+                spec.getParameters().getConnections().set(jlinkApplication.getDownloadConnections());
+                spec.getParameters().getOffline().set(project.getGradle().getStartParameter().isOffline());
+            });
+            Provider<JdkStore> jdkStore = project.getGradle().getSharedServices().registerIfAbsent(JdkStore.NAME, JdkStore.class, spec -> {
+                spec.getParameters().getStoreDirectory().set(new File(project.getGradle().getGradleUserHomeDir(), JdkStore.FOLDER));
+                spec.getParameters().getMaxSize().set(jlinkApplication.getJdkStoreMaxSize());
+            });
+            tasks.withType(JlinkImageTask.class).configureEach(task -> {
+                task.getJdkStore().convention(jdkStore);
+                task.usesService(jdkStore);
+                task.usesService(jdkDownloads);
+                task.getModuleAnalysis().convention(moduleAnalysis);
+                task.usesService(moduleAnalysis);
+                task.getJlinkInvocations().convention(jlinkInvocations);
+                task.usesService(jlinkInvocations);
+                task.getLocalImageStore().convention(jlinkApplication.getUseLocalImageStore().flatMap(useLocalImageStore -> useLocalImageStore
+                        ? project.getLayout().dir(project.provider(() -> new File(project.getGradle().getGradleUserHomeDir(), LocalImageStore.FOLDER)))
+                        : project.provider(() -> null)));
+                task.getLocalImageStoreMaxSize().convention(jlinkApplication.getLocalImageStoreMaxSize());
+            });
             Consumer<JlinkImageTask> defaultImageTaskSettings = task -> {
                 task.setGroup(BasePlugin.BUILD_GROUP);
                 task.getModulePath().convention(project.files(tasks.named(JavaPlugin.JAR_TASK_NAME), project.getConfigurations().named(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME)));
@@ -98,8 +167,18 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
                 task.getVendorVersion().convention(jlinkApplication.getVendorVersion());
                 task.getVendorVmBugUrl().convention(jlinkApplication.getVendorVmBugUrl());
                 task.getIgnoreSigningInformation().convention(jlinkApplication.getIgnoreSigningInformation());
+                task.getNativeLibrariesAllowlist().convention(jlinkApplication.getNativeLibrariesAllowlist());
+                task.getShrinkModules().convention(jlinkApplication.getShrinkModules());
+                task.getKeepClasses().convention(jlinkApplication.getKeepClasses());
             };
 
+            // The classes and the resources of the project in one directory, which jlink links as an exploded module without packaging the jar
+            TaskProvider<Sync> explodedModuleTask = tasks.register("imageExplodedModule", Sync.class, task -> {
+                task.setDescription("Assembles the classes and resources of the project as an exploded module for the 'image' task");
+                task.from(project.getExtensions().getByType(JavaPluginExtension.class).getSourceSets().named(SourceSet.MAIN_SOURCE_SET_NAME).map(SourceSet::getOutput));
+                task.into(project.getLayout().getBuildDirectory().dir(EXPLODED_MODULE_OUTPUT_FOLDER));
+            });
+
             TaskProvider<JlinkImageTask> imageTask = tasks.register("image", JlinkImageTask.class, task -> {
                 Provider<Directory> outputFolder = project.getLayout()
                         .getBuildDirectory()
@@ -109,6 +188,12 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
                 task.setDescription("Builds a jlink image using the current JDK");
                 task.getOutput().convention(outputFolder);
                 defaultImageTaskSettings.accept(task);
+                task.getModulePath().convention(jlinkApplication.getExplodedModule().map(explodedModule -> project.files(
+                        explodedModule ? explodedModuleTask : tasks.named(JavaPlugin.JAR_TASK_NAME),
+                        project.getConfigurations().named(JavaPlugin.RUNTIME_CLASSPATH_CONFIGURATION_NAME))));
+                task.getDevRuntime().convention(jlinkApplication.getDevRuntime());
+                task.getImageRuns().convention(imageRuns);
+                task.usesService(imageRuns);
             });
 
             tasks.register("imageRun", JlinkRunImageTask.class, task -> {
@@ -118,6 +203,11 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
                 task.getImageDirectory().convention(imageTask.flatMap(JlinkImageTask::getOutput));
                 task.getMainClass().convention(jlinkApplication.getMainClass());
                 task.getMainModule().convention(jlinkApplication.getMainModule());
+                task.getPidFile().convention(project.getLayout().getBuildDirectory().file(IMAGE_RUN_OUTPUT_FOLDER + "/imageRun.pid"));
+                task.getLogFile().convention(project.getLayout().getBuildDirectory().file(IMAGE_RUN_OUTPUT_FOLDER + "/imageRun.log"));
+                task.getImageRuns().convention(imageRuns);
+                task.getContinuousBuild().convention(project.getGradle().getStartParameter().isContinuous());
+                task.usesService(imageRuns);
             });
 
             tasks.register("imageModules", JlinkModulesImageTask.class, task -> {
@@ -127,13 +217,97 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
                 task.getImageDirectory().convention(imageTask.flatMap(JlinkImageTask::getOutput));
             });
 
+            tasks.register("imageDiff", JlinkImageDiffTask.class, task -> {
+                task.setGroup(HelpTasksPlugin.HELP_GROUP);
+                task.setDescription("Displays what changed in the project JVM application bundled with jlink compared to a baseline image");
+
+                task.getImageDirectory().convention(imageTask.flatMap(JlinkImageTask::getOutput));
+                task.getReport().convention(project.getLayout().getBuildDirectory().file(REPORTS_OUTPUT_FOLDER + "/imageDiff.txt"));
+            });
+
+            tasks.register("imageWhy", JlinkImageWhyTask.class, task -> {
+                task.setGroup(HelpTasksPlugin.HELP_GROUP);
+                task.setDescription("Displays why every module is linked into the project JVM application bundled with jlink, and what it costs");
+
+                task.getJavaLauncher().convention(imageTask.flatMap(JlinkImageTask::getJavaLauncher));
+                task.getModulePath().convention(imageTask.flatMap(JlinkImageTask::getModulePath));
+                task.getAddModules().convention(imageTask.flatMap(JlinkImageTask::getAddModules));
+                task.getLimitModules().convention(imageTask.flatMap(JlinkImageTask::getLimitModules));
+                task.getBindServices().convention(imageTask.flatMap(JlinkImageTask::getBindServices));
+                task.getModuleAnalysis().convention(moduleAnalysis);
+                task.usesService(moduleAnalysis);
+                task.getReport().convention(project.getLayout().getBuildDirectory().file(REPORTS_OUTPUT_FOLDER + "/imageWhy.txt"));
+            });
+
+            TaskProvider<JlinkTrainingRunTask> trainingRunTask = tasks.register("imageTrainingRun", JlinkTrainingRunTask.class, task -> {
+                task.setGroup(BasePlugin.BUILD_GROUP);
+                task.setDescription("Runs the training workloads against the image built by the 'image' task and records what they use");
+
+                task.getImageDirectory().convention(imageTask.flatMap(JlinkImageTask::getOutput));
+                task.getMainClass().convention(jlinkApplication.getMainClass());
+                task.getMainModule().convention(jlinkApplication.getMainModule());
+                task.getRuns().convention(jlinkApplication.getTrainingRuns());
+                task.getRecordNativeLibraries().convention(jlinkApplication.getPruneNativeLibraries());
+                task.getRecordLoadedClasses().convention(jlinkApplication.getShrinkModules().map(modules -> !modules.isEmpty()));
+                task.getRecordLocales().convention(jlinkApplication.getIncludeTrainedLocales());
+                task.getRecordJliClasses().convention(jlinkApplication.getGenerateJliClasses());
+                task.getRecordCdsClassList().convention(jlinkApplication.getIncludeTrainedCdsClasses());
+                task.getOutput().convention(project.getLayout().getBuildDirectory().dir(TRAINING_OUTPUT_FOLDER));
+            });
+
+            registerBudgetTask(project, imageTask, jlinkApplication, jlinkApplication.getMaxImageSize(), jlinkApplication.getMaxLibModulesSize(), jlinkApplication.getMaxModuleCount(), jlinkApplication.getMaxStartupMillis());
+
             DependencyHandler dependencies = project.getDependencies();
-            Attribute<Boolean> extractedArchive = registerExtractTransform(dependencies);
 
+            JavaToolchainService javaToolchains = project.getExtensions().getByType(JavaToolchainService.class);
+            Provider<JavaLauncher> projectLauncher = javaToolchains.launcherFor(project.getExtensions().getByType(JavaPluginExtension.class).getToolchain());
+            File gradleUserHome = project.getGradle().getGradleUserHomeDir();
+            // Skipping the download would skip the verification of the archive as well
+            boolean dependencyVerification = project.getRootProject().file("gradle/verification-metadata.xml").exists();
+            Configuration prefetchConf = project.getConfigurations().create("jdkArchivesPrefetch", it -> {
+                it.setCanBeConsumed(false);
+            });
+            TaskProvider<JlinkPrefetchTask> prefetchTask = tasks.register("jlinkPrefetch", JlinkPrefetchTask.class, task -> {
+                task.setGroup(BasePlugin.BUILD_GROUP);
+                task.setDescription("Downloads and extracts the JDK archives of all the jlink images concurrently");
+                task.getRepositoryArchives().from(prefetchConf);
+                task.getJdkStore().convention(jdkStore);
+                task.usesService(jdkStore);
+                task.getJdkDownloads().convention(jdkDownloads);
+                task.usesService(jdkDownloads);
+            });
+            // The project toolchain, unless the JDK is of another major version
+            Transformer<Provider<JavaLauncher>, JdkRelease> launcherForRelease = release -> projectLauncher.flatMap(launcher ->
+                    release.getMajorVersion() == -1 || launcher.getMetadata().getLanguageVersion().asInt() == release.getMajorVersion()
+                            ? projectLauncher
+                            : javaToolchains.launcherFor(spec -> spec.getLanguageVersion().set(JavaLanguageVersion.of(release.getMajorVersion()))));
             jlinkImages.all(image -> {
                 String capitalizedName = image.getCapitalizedName();
-                Configuration conf = project.getConfigurations().create("jdkArchive" + capitalizedName, it -> it.getAttributes().attribute(extractedArchive, true));
-                dependencies.addProvider(conf.getName(), image.getDependencyClassifier());
+                image.getReuseToolchainJmods().convention(true);
+                image.getMaxImageSize().convention(jlinkApplication.getMaxImageSize());
+                image.getMaxLibModulesSize().convention(jlinkApplication.getMaxLibModulesSize());
+                image.getMaxModuleCount().convention(jlinkApplication.getMaxModuleCount());
+                image.getMaxStartupMillis().convention(jlinkApplication.getMaxStartupMillis());
+                Configuration conf = project.getConfigurations().create("jdkArchive" + capitalizedName);
+                conf.getDependencies().addAllLater(image.getJdkArchiveUrl().map(url -> List.<Dependency>of())
+                        .orElse(image.getDependencyClassifier().map(dependency -> List.of(dependencies.create(dependency)))));
+                Configuration sha256Conf = project.getConfigurations().create("jdkArchiveSha256" + capitalizedName, it -> it.getDependencies()
+                        .addAllLater(image.getSha256FileDependency().map(dependency -> List.of(dependencies.create(dependency))).orElse(List.of())));
+                // Downloaded only when queried, e.g. not if the toolchain is the same JDK
+                Provider<File> jdkArchive = project.provider(() -> image.getJdkArchiveUrl().isPresent()
+                        ? jdkDownloads.get().download(image.getJdkArchiveUrl().get())
+                        : project.files(conf).getSingleFile());
+                Provider<String> sha256 = image.getSha256().orElse(project.provider(() -> image.getSha256File().isPresent()
+                        ? JdkArchives.readSha256(project.files(sha256Conf).getSingleFile().toPath(), image.getArchiveName().get())
+                        : null));
+                Provider<File> releaseIndexEntry = image.getArchiveGroup().zip(image.getArchiveName(), (group, archiveName) -> JdkReleaseIndex.entry(gradleUserHome, group, archiveName));
+                prefetchConf.extendsFrom(conf);
+                prefetchTask.configure(task -> {
+                    task.getArchiveUrls().putAll(image.getJdkArchiveUrl().map(url -> Map.of(image.name, url)).orElse(Map.of()));
+                    task.getArchiveNames().putAll(image.getJdkArchiveUrl().map(url -> Map.<String, String>of()).orElse(image.getJdkArchive().map(archiveName -> Map.of(image.name, archiveName))).orElse(Map.of()));
+                    task.getSha256().putAll(sha256.map(it -> Map.of(image.name, it)).orElse(Map.of()));
+                    task.getReleaseIndexEntries().putAll(releaseIndexEntry.map(entry -> Map.of(image.name, entry)).orElse(Map.of()));
+                });
 
                 TaskProvider<JlinkImageTask> crossTargetImage = tasks.register("image" + capitalizedName, JlinkImageTask.class, task -> {
                     Provider<Directory> outputFolder = project.getLayout()
@@ -143,32 +317,103 @@ public class JlinkApplicationPlugin implements Plugin<Project> {
 
                     task.setDescription("Builds a jlink image using the JDK for " + image.name);
                     task.getOutput().convention(outputFolder);
-                    task.getCrossTargetJdk().convention(project.getLayout().dir(project.provider(() -> project.files(conf).getSingleFile())));
+                    // jlink has to be of the same major version as the cross-target JDK. Until the release index knows the JDK,
+                    // the launcher is left unset, and the task picks it by the archive as it links.
+                    Provider<JdkRelease> indexedRelease = project.getProviders().fileContents(project.getLayout().file(releaseIndexEntry)).getAsBytes()
+                            .map(JdkRelease::read);
+                    task.getJavaLauncher().convention(indexedRelease.flatMap(launcherForRelease));
+                    // The archive is downloaded only if the toolchain is not the same JDK, or if it has to be verified
+                    Provider<Directory> matchingToolchain = indexedRelease.flatMap(release -> task.getJavaLauncher().flatMap(launcher -> {
+                        Directory jdkHome = launcher.getMetadata().getInstallationPath();
+                        return project.getProviders().fileContents(jdkHome.file(JdkRelease.RELEASE_FILE)).getAsBytes().map(toolchainRelease ->
+                                image.getReuseToolchainJmods().get() && !dependencyVerification && !sha256.isPresent() && JdkReleaseIndex.matches(release, JdkRelease.read(toolchainRelease))
+                                        ? jdkHome
+                                        : null);
+                    }));
+                    task.getCrossTargetJdk().convention(matchingToolchain);
+                    task.getCrossTargetJdkArchive().convention(project.getLayout().file(project.provider(() -> matchingToolchain.isPresent() ? null : jdkArchive.get())));
+                    task.getCrossTargetJdkSha256().convention(sha256);
+                    task.getJdkReleaseIndexEntry().convention(project.getLayout().file(releaseIndexEntry));
                     defaultImageTaskSettings.accept(task);
+                    task.getTrainedNativeLibraries().convention(jlinkApplication.getPruneNativeLibraries().flatMap(prune -> prune
+                            ? trainingRunTask.flatMap(it -> it.getOutput().file(JlinkTrainingRunTask.NATIVE_LIBRARIES_FILE))
+                            : project.provider(() -> null)));
+                    task.getTrainedLoadedClasses().convention(jlinkApplication.getShrinkModules().flatMap(modules -> !modules.isEmpty()
+                            ? trainingRunTask.flatMap(it -> it.getOutput().file(JlinkTrainingRunTask.LOADED_CLASSES_FILE))
+                            : project.provider(() -> null)));
+                    task.getTargetLocales().convention(jlinkApplication.getTargetLocales());
+                    task.getTrainedLocales().convention(jlinkApplication.getIncludeTrainedLocales().flatMap(include -> include
+                            ? trainingRunTask.flatMap(it -> it.getOutput().file(JlinkTrainingRunTask.LOCALES_FILE))
+                            : project.provider(() -> null)));
+                    task.getTrainedJliClasses().convention(jlinkApplication.getGenerateJliClasses().flatMap(generate -> generate
+                            ? trainingRunTask.flatMap(it -> it.getOutput().file(JlinkTrainingRunTask.JLI_CLASSES_FILE))
+                            : project.provider(() -> null)));
+                    task.getTrainedCdsClassList().convention(jlinkApplication.getIncludeTrainedCdsClasses().flatMap(include -> include
+                            ? trainingRunTask.flatMap(it -> it.getOutput().file(JlinkTrainingRunTask.CDS_CLASS_LIST_FILE))
+                            : project.provider(() -> null)));
                 });
                 tasks.named(BasePlugin.ASSEMBLE_TASK_NAME).configure(task -> task.dependsOn(crossTargetImage));
+                registerTrainingVerificationTask(project, crossTargetImage, jlinkApplication);
+                registerBudgetTask(project, crossTargetImage, jlinkApplication, image.getMaxImageSize(), image.getMaxLibModulesSize(), image.getMaxModuleCount(), image.getMaxStartupMillis());
             });
         });
     }
 
-    private static Attribute<Boolean> registerExtractTransform(DependencyHandler dependencies) {
-        Attribute<Boolean> extractedArchive = Attribute.of("extracted", Boolean.class);
-        Attribute<String> artifactType = Attribute.of("artifactType", String.class);
-
-        dependencies.getArtifactTypes().maybeCreate("zip").getAttributes().attribute(extractedArchive, false);
-        dependencies.getArtifactTypes().maybeCreate("tar.gz").getAttributes().attribute(extractedArchive, false);
+    private static void registerBudgetTask(Project project,
+                                           TaskProvider<JlinkImageTask> imageTask,
+                                           JlinkApplicationPluginExtension jlinkApplication,
+                                           Provider<Long> maxImageSize,
+                                           Provider<Long> maxLibModulesSize,
+                                           Provider<Integer> maxModuleCount,
+                                           Provider<Long> maxStartupMillis) {
+        String name = imageTask.getName() + "Budget";
+        TaskProvider<JlinkImageBudgetTask> budgetTask = project.getTasks().register(name, JlinkImageBudgetTask.class, task -> {
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Verifies that the image built by the '" + imageTask.getName() + "' task fits into the configured size and startup budgets");
 
-        dependencies.registerTransform(ExtractJdkTransform.class, transform -> {
-            transform.getFrom().attribute(artifactType, "zip").attribute(extractedArchive, false);
-            transform.getTo().attribute(artifactType, "zip").attribute(extractedArchive, true);
+            task.getImageDirectory().convention(imageTask.flatMap(JlinkImageTask::getOutput));
+            task.getMaxImageSize().convention(maxImageSize);
+            task.getMaxLibModulesSize().convention(maxLibModulesSize);
+            task.getMaxModuleCount().convention(maxModuleCount);
+            task.getMaxStartupMillis().convention(maxStartupMillis);
+            task.getMainModule().convention(jlinkApplication.getMainModule());
+            task.getMainClass().convention(jlinkApplication.getMainClass());
+            task.getReport().convention(project.getLayout().getBuildDirectory().file(REPORTS_OUTPUT_FOLDER + "/" + name + ".txt"));
         });
-
-        dependencies.registerTransform(ExtractJdkTransform.class, transform -> {
-            transform.getFrom().attribute(artifactType, "tar.gz").attribute(extractedArchive, false);
-            transform.getTo().attribute(artifactType, "tar.gz").attribute(extractedArchive, true);
+        Provider<List<TaskProvider<JlinkImageBudgetTask>>> budgetTaskIfConfigured = project.provider(() -> {
+            boolean configured = maxImageSize.isPresent() || maxLibModulesSize.isPresent() || maxModuleCount.isPresent() || maxStartupMillis.isPresent();
+            return configured ? List.of(budgetTask) : List.of();
         });
+        project.getTasks().named(LifecycleBasePlugin.CHECK_TASK_NAME).configure(task -> task.dependsOn(budgetTaskIfConfigured));
+    }
+
+    // Re-runs the training workloads against a pruned image to make sure nothing they need was removed
+    private static void registerTrainingVerificationTask(Project project,
+                                                         TaskProvider<JlinkImageTask> imageTask,
+                                                         JlinkApplicationPluginExtension jlinkApplication) {
+        String name = imageTask.getName() + "TrainingRun";
+        TaskProvider<JlinkTrainingRunTask> verificationTask = project.getTasks().register(name, JlinkTrainingRunTask.class, task -> {
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Runs the training workloads against the image built by the '" + imageTask.getName() + "' task");
 
-        return extractedArchive;
+            task.getImageDirectory().convention(imageTask.flatMap(JlinkImageTask::getOutput));
+            task.getMainClass().convention(jlinkApplication.getMainClass());
+            task.getMainModule().convention(jlinkApplication.getMainModule());
+            task.getRuns().convention(jlinkApplication.getTrainingRuns());
+            task.getOutput().convention(project.getLayout().getBuildDirectory().dir(TRAINING_VERIFICATION_OUTPUT_FOLDER + "/" + imageTask.getName()));
+            task.onlyIf(it -> {
+                try {
+                    return ImagePlatform.isHost(ImagePlatform.of(((JlinkTrainingRunTask) it).getImageDirectory().get().getAsFile().toPath()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        });
+        Provider<List<TaskProvider<JlinkTrainingRunTask>>> verificationTaskIfPruned = project.provider(() -> {
+            boolean pruned = jlinkApplication.getPruneNativeLibraries().getOrElse(false) || !jlinkApplication.getShrinkModules().get().isEmpty();
+            return pruned ? List.of(verificationTask) : List.of();
+        });
+        imageTask.configure(task -> task.finalizedBy(verificationTaskIfPruned));
     }
 
 }
@@ -19,6 +19,8 @@ import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
 import org.gradle.api.provider.Property;
 
+import java.util.List;
+
 public abstract class JlinkApplicationPluginExtension {
 
     public abstract Property<String> getMainModule();
@@ -75,4 +77,44 @@ public abstract class JlinkApplicationPluginExtension {
 
     public abstract Property<Boolean> getIgnoreSigningInformation();
 
+    public abstract Property<Long> getMaxImageSize();
+
+    public abstract Property<Long> getMaxLibModulesSize();
+
+    public abstract Property<Integer> getMaxModuleCount();
+
+    public abstract Property<Long> getMaxStartupMillis();
+
+    public abstract MapProperty<String, List<String>> getTrainingRuns();
+
+    public abstract Property<Boolean> getPruneNativeLibraries();
+
+    public abstract ListProperty<String> getNativeLibrariesAllowlist();
+
+    public abstract ListProperty<String> getShrinkModules();
+
+    public abstract ListProperty<String> getKeepClasses();
+
+    public abstract ListProperty<String> getTargetLocales();
+
+    public abstract Property<Boolean> getIncludeTrainedLocales();
+
+    public abstract Property<Boolean> getGenerateJliClasses();
+
+    public abstract Property<Boolean> getIncludeTrainedCdsClasses();
+
+    public abstract Property<Boolean> getUseLocalImageStore();
+
+    public abstract Property<Long> getLocalImageStoreMaxSize();
+
+    // Links the classes and resources of the project as an exploded module instead of the jar, for the 'image' task only
+    public abstract Property<Boolean> getExplodedModule();
+
+    // Assembles the 'image' of the toolchain JDK and the application modules without jlink, for development only
+    public abstract Property<Boolean> getDevRuntime();
+
+    public abstract Property<Long> getJdkStoreMaxSize();
+
+    public abstract Property<Integer> getDownloadConnections();
+
 }
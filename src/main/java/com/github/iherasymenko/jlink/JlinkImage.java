@@ -20,6 +20,7 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 
 import javax.inject.Inject;
+import java.net.URI;
 import java.util.Map;
 import java.util.Objects;
 
@@ -38,6 +39,26 @@ public abstract class JlinkImage {
 
     public abstract Property<String> getGroup();
 
+    // Where to download the archive from, instead of the repositories of the project
+    public abstract Property<String> getJdkArchiveUrl();
+
+    // The expected SHA-256 of the archive
+    public abstract Property<String> getSha256();
+
+    // The name of the file with the SHA-256 of the archive, which the vendor publishes next to it,
+    // e.g. OpenJDK21U-jdk_x64_linux_hotspot_21.0.1_12.tar.gz.sha256.txt
+    public abstract Property<String> getSha256File();
+
+    public abstract Property<Boolean> getReuseToolchainJmods();
+
+    public abstract Property<Long> getMaxImageSize();
+
+    public abstract Property<Long> getMaxLibModulesSize();
+
+    public abstract Property<Integer> getMaxModuleCount();
+
+    public abstract Property<Long> getMaxStartupMillis();
+
     Provider<Map<String, String>> getDependencyClassifier() {
         return getJdkArchive().zip(getGroup(), ((jdkArchiveName, group) -> {
             String ext;
@@ -55,6 +76,26 @@ public abstract class JlinkImage {
         }));
     }
 
+    // The file name of the archive, either from the repositories or from the URL
+    Provider<String> getArchiveName() {
+        return getJdkArchiveUrl().map(url -> JdkDownloadService.fileName(URI.create(url))).orElse(getJdkArchive());
+    }
+
+    // The group of the archive, or the host of its URL
+    Provider<String> getArchiveGroup() {
+        return getJdkArchiveUrl().map(url -> URI.create(url).getHost()).orElse(getGroup());
+    }
+
+    Provider<Map<String, String>> getSha256FileDependency() {
+        return getSha256File().zip(getGroup(), ((sha256File, group) -> {
+            int dot = sha256File.lastIndexOf('.');
+            if (dot == -1) {
+                throw new GradleException("The SHA-256 file has to have an extension: " + sha256File);
+            }
+            return Map.of("group", group, "name", sha256File.substring(0, dot), "ext", sha256File.substring(dot + 1));
+        }));
+    }
+
     String getCapitalizedName() {
         return Character.toUpperCase(name.charAt(0)) + name.substring(1);
     }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static com.github.iherasymenko.jlink.Os.javaBinaryName;
+
+public abstract class JlinkImageBudgetTask extends DefaultTask {
+
+    public JlinkImageBudgetTask() {
+        getStartupRuns().convention(5);
+    }
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getImageDirectory();
+
+    @Input
+    @Optional
+    public abstract Property<Long> getMaxImageSize();
+
+    @Input
+    @Optional
+    public abstract Property<Long> getMaxLibModulesSize();
+
+    @Input
+    @Optional
+    public abstract Property<Integer> getMaxModuleCount();
+
+    @Input
+    @Optional
+    public abstract Property<Long> getMaxStartupMillis();
+
+    @Input
+    public abstract Property<Integer> getStartupRuns();
+
+    @Input
+    public abstract ListProperty<String> getStartupArgs();
+
+    @Input
+    @Optional
+    public abstract Property<String> getMainModule();
+
+    @Input
+    @Optional
+    public abstract Property<String> getMainClass();
+
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @Inject
+    public abstract ExecOperations getExecOperations();
+
+    @TaskAction
+    public void execute() throws IOException {
+        Path image = getImageDirectory().get().getAsFile().toPath();
+        List<String> report = new ArrayList<>();
+        List<String> exceeded = new ArrayList<>();
+
+        long imageSize = sizeOf(image);
+        check(report, exceeded, "total size", imageSize, getMaxImageSize().getOrNull(), "bytes");
+        long libModulesSize = Files.size(image.resolve(ImageContents.MODULES_FILE));
+        check(report, exceeded, ImageContents.MODULES_FILE + " size", libModulesSize, getMaxLibModulesSize().getOrNull(), "bytes");
+        JdkRelease release = JdkRelease.read(image.resolve(JdkRelease.RELEASE_FILE));
+        long moduleCount = release.getModules().size();
+        Integer maxModuleCount = getMaxModuleCount().getOrNull();
+        check(report, exceeded, "module count", moduleCount, maxModuleCount == null ? null : maxModuleCount.longValue(), "modules");
+        if (getMaxStartupMillis().isPresent()) {
+            String platform = ImagePlatform.of(image);
+            if (ImagePlatform.isHost(platform)) {
+                check(report, exceeded, "median startup time", medianStartupMillis(image), getMaxStartupMillis().get(), "ms");
+            } else {
+                getLogger().warn("Skipping the startup time budget of {}: the image is built for {} and cannot be started on this machine", getPath(), platform);
+            }
+        }
+
+        Files.write(getReport().get().getAsFile().toPath(), report);
+        for (String line : report) {
+            getLogger().info(line);
+        }
+        if (!exceeded.isEmpty()) {
+            StringBuilder message = new StringBuilder("Image budget exceeded for " + getPath() + " (" + image + "):");
+            for (String line : exceeded) {
+                message.append(System.lineSeparator()).append("  ").append(line);
+            }
+            throw new GradleException(message.toString());
+        }
+    }
+
+    private static void check(List<String> report, List<String> exceeded, String what, long actual, Long max, String unit) {
+        if (max == null) {
+            report.add(what + ": " + actual + " " + unit);
+            return;
+        }
+        String line = what + ": " + actual + " " + unit + (actual > max ? " > " : " <= ") + max + " " + unit;
+        if (actual > max) {
+            line += " (+" + (actual - max) + " " + unit + ")";
+            exceeded.add(line);
+        }
+        report.add(line);
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (Stream<Path> walker = Files.walk(directory)) {
+            long size = 0;
+            for (Path path : (Iterable<Path>) walker::iterator) {
+                if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                    size += Files.size(path);
+                }
+            }
+            return size;
+        }
+    }
+
+    private long medianStartupMillis(Path image) {
+        if (!getMainModule().isPresent() || !getMainClass().isPresent()) {
+            throw new GradleException("Cannot measure the startup time of " + getPath() + ": 'mainModule' and 'mainClass' must be set");
+        }
+        int runs = getStartupRuns().get();
+        if (runs < 1) {
+            throw new GradleException("'startupRuns' must be positive, but was " + runs);
+        }
+        List<Long> timings = new ArrayList<>();
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            getExecOperations().exec(spec -> {
+                spec.setExecutable(image.resolve("bin").resolve(javaBinaryName()).toFile());
+                spec.args(DevRuntime.javaArgs(image));
+                spec.args("-m", getMainModule().get() + "/" + getMainClass().get());
+                spec.args(getStartupArgs().get());
+                spec.setStandardOutput(OutputStream.nullOutputStream());
+            });
+            timings.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        timings.sort(null);
+        getLogger().info("Startup timings of {}: {} ms", getPath(), timings);
+        return timings.get(timings.size() / 2);
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ArchiveOperations;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+
+public abstract class JlinkImageDiffTask extends DefaultTask {
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getImageDirectory();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getBaseline();
+
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    protected abstract ArchiveOperations getArchiveOperations();
+
+    @TaskAction
+    public void execute() throws IOException {
+        ImageContents baseline = ImageContents.read(resolveBaselineImage());
+        ImageContents current = ImageContents.read(getImageDirectory().get().getAsFile().toPath());
+
+        List<String> report = new ArrayList<>();
+        section(report, "Modules", diff(group(baseline.resources, ImageContents::moduleOf), group(current.resources, ImageContents::moduleOf)));
+        section(report, "Packages", diff(group(baseline.resources, ImageContents::packageOf), group(current.resources, ImageContents::packageOf)));
+        section(report, "Classes", diff(classes(baseline.resources), classes(current.resources)));
+        section(report, "Files", diff(baseline.files, current.files));
+        long modulesDelta = ImageContents.aggregate(current.resources).size - ImageContents.aggregate(baseline.resources).size;
+        long filesDelta = ImageContents.aggregate(current.files).size - ImageContents.aggregate(baseline.files).size;
+        report.add(String.format("Total: %s %s bytes (uncompressed), files %s bytes", ImageContents.MODULES_FILE, signed(modulesDelta), signed(filesDelta)));
+
+        Path reportFile = getReport().get().getAsFile().toPath();
+        Files.write(reportFile, report);
+        for (String line : report) {
+            getLogger().lifecycle(line);
+        }
+    }
+
+    private Path resolveBaselineImage() throws IOException {
+        if (getBaseline().isEmpty()) {
+            throw new GradleException("No baseline image is configured for " + getPath() + ". Point 'baseline' to a directory or an archive of a previously built image.");
+        }
+        File baseline = getBaseline().getSingleFile();
+        if (baseline.isDirectory()) {
+            return ImageContents.findImageRoot(baseline.toPath());
+        }
+        String fileName = baseline.getName();
+        FileTree tree;
+        if (fileName.endsWith(".zip")) {
+            tree = getArchiveOperations().zipTree(baseline);
+        } else if (fileName.endsWith(".tar.gz") || fileName.endsWith(".tgz") || fileName.endsWith(".tar")) {
+            tree = getArchiveOperations().tarTree(baseline);
+        } else {
+            throw new GradleException("Unsupported archive format: " + fileName);
+        }
+        File destPath = new File(getTemporaryDir(), "baseline");
+        getFileSystemOperations().sync(spec -> spec.from(tree).into(destPath));
+        return ImageContents.findImageRoot(destPath.toPath());
+    }
+
+    private static SortedMap<String, ImageContents.Entry> group(SortedMap<String, ImageContents.Entry> resources, Function<String, String> key) {
+        Map<String, SortedMap<String, ImageContents.Entry>> groups = new TreeMap<>();
+        for (Map.Entry<String, ImageContents.Entry> entry : resources.entrySet()) {
+            String group = key.apply(entry.getKey());
+            if (group != null) {
+                groups.computeIfAbsent(group, it -> new TreeMap<>()).put(entry.getKey(), entry.getValue());
+            }
+        }
+        SortedMap<String, ImageContents.Entry> out = new TreeMap<>();
+        groups.forEach((group, entries) -> out.put(group, ImageContents.aggregate(entries)));
+        return out;
+    }
+
+    private static SortedMap<String, ImageContents.Entry> classes(SortedMap<String, ImageContents.Entry> resources) {
+        SortedMap<String, ImageContents.Entry> out = new TreeMap<>();
+        resources.forEach((name, entry) -> {
+            if (name.endsWith(".class")) {
+                out.put(name, entry);
+            }
+        });
+        return out;
+    }
+
+    private static List<String> diff(SortedMap<String, ImageContents.Entry> before, SortedMap<String, ImageContents.Entry> after) {
+        TreeSet<String> names = new TreeSet<>(before.keySet());
+        names.addAll(after.keySet());
+        List<String> out = new ArrayList<>();
+        for (String name : names) {
+            ImageContents.Entry was = before.get(name);
+            ImageContents.Entry is = after.get(name);
+            if (was == null) {
+                out.add("  + " + name + " " + signed(is.size) + " bytes");
+            } else if (is == null) {
+                out.add("  - " + name + " " + signed(-was.size) + " bytes");
+            } else if (!was.hash.equals(is.hash)) {
+                out.add("  ~ " + name + " " + signed(is.size - was.size) + " bytes");
+            }
+        }
+        return out;
+    }
+
+    private static void section(List<String> report, String title, List<String> lines) {
+        report.add(title + ": " + (lines.isEmpty() ? "no changes" : lines.size() + " changed"));
+        report.addAll(lines);
+    }
+
+    private static String signed(long value) {
+        return value > 0 ? "+" + value : Long.toString(value);
+    }
+
+}
@@ -21,6 +21,7 @@ import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileSystemOperations;
 import org.gradle.api.file.RegularFile;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.plugins.JavaPluginExtension;
 import org.gradle.api.provider.ListProperty;
 import org.gradle.api.provider.MapProperty;
@@ -28,18 +29,24 @@ import org.gradle.api.provider.Property;
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.Optional;
 import org.gradle.api.tasks.*;
+import org.gradle.jvm.toolchain.JavaLanguageVersion;
 import org.gradle.jvm.toolchain.JavaLauncher;
 import org.gradle.jvm.toolchain.JavaToolchainService;
 import org.gradle.jvm.toolchain.JavaToolchainSpec;
 import org.gradle.process.ExecOperations;
+import org.gradle.process.ExecResult;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
 
 import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -48,6 +55,17 @@ import static java.util.stream.Collectors.joining;
 @CacheableTask
 public abstract class JlinkImageTask extends DefaultTask {
 
+    // Loaded by the launcher or the operating system, hence never reported by -Xlog:library
+    private static final List<String> DEFAULT_NATIVE_LIBRARIES_ALLOWLIST = List.of(
+            "jli", "jvm", "java", "jsig", "jimage", "zip", "verify", "jsvml",
+            "vcruntime*", "msvcp*", "ucrtbase", "api-ms-win-*"
+    );
+
+    // Listed under 'Capabilities' by 'jlink --help' of the JDKs built with --enable-linkable-runtime, see JEP 493
+    private static final String LINKABLE_RUNTIME = "Linking from run-time image enabled";
+
+    private transient JavaLauncher javaLauncher;
+
     public JlinkImageTask() {
         JavaToolchainSpec toolchain = getProject()
                 .getExtensions()
@@ -55,9 +73,13 @@ public abstract class JlinkImageTask extends DefaultTask {
                 .getToolchain();
         Provider<JavaLauncher> defaultLauncher = getJavaToolchainService().launcherFor(toolchain);
         getJavaLauncher().convention(defaultLauncher);
+        // Its symbolic links point into the toolchain installation of this machine
+        getOutputs().doNotCacheIf("A dev runtime is not relocatable", task -> getDevRuntime().getOrElse(false));
     }
 
+    // Unset for a cross-target JDK the release index does not know yet, see resolveJavaLauncher
     @Nested
+    @Optional
     public abstract Property<JavaLauncher> getJavaLauncher();
 
     @InputDirectory
@@ -65,6 +87,23 @@ public abstract class JlinkImageTask extends DefaultTask {
     @PathSensitive(PathSensitivity.RELATIVE)
     public abstract DirectoryProperty getCrossTargetJdk();
 
+    // The archive of the cross-target JDK, extracted to the JDK store when the image is linked. Ignored if crossTargetJdk is set.
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract RegularFileProperty getCrossTargetJdkArchive();
+
+    @Input
+    @Optional
+    public abstract Property<String> getCrossTargetJdkSha256();
+
+    @Internal
+    public abstract Property<JdkStore> getJdkStore();
+
+    // Where the release file of the cross-target JDK is recorded, see JdkReleaseIndex
+    @Internal
+    public abstract RegularFileProperty getJdkReleaseIndexEntry();
+
     @Classpath
     public abstract Property<FileCollection> getModulePath();
 
@@ -135,6 +174,11 @@ public abstract class JlinkImageTask extends DefaultTask {
     @Input
     public abstract ListProperty<String> getLimitModules();
 
+    // Assembles a runtime-shaped directory of the toolchain JDK and the application modules instead of linking an image
+    @Input
+    @Optional
+    public abstract Property<Boolean> getDevRuntime();
+
     @Input
     @Optional
     public abstract Property<String> getVm();
@@ -159,6 +203,60 @@ public abstract class JlinkImageTask extends DefaultTask {
     @Optional
     public abstract Property<Boolean> getIgnoreSigningInformation();
 
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getTrainedNativeLibraries();
+
+    @Input
+    public abstract ListProperty<String> getNativeLibrariesAllowlist();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getTrainedLoadedClasses();
+
+    @Input
+    public abstract ListProperty<String> getShrinkModules();
+
+    @Input
+    public abstract ListProperty<String> getKeepClasses();
+
+    @Input
+    public abstract ListProperty<String> getTargetLocales();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getTrainedLocales();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getTrainedJliClasses();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getTrainedCdsClassList();
+
+    @Internal
+    public abstract Property<ModuleAnalysisService> getModuleAnalysis();
+
+    @Internal
+    public abstract Property<JlinkInvocationService> getJlinkInvocations();
+
+    @Internal
+    public abstract Property<ImageRunService> getImageRuns();
+
+    // Where the linked images are kept by their invocation keys, see LocalImageStore
+    @Internal
+    public abstract DirectoryProperty getLocalImageStore();
+
+    // Bytes
+    @Internal
+    public abstract Property<Long> getLocalImageStoreMaxSize();
+
     @Inject
     protected abstract FileSystemOperations getFileSystemOperations();
 
@@ -168,13 +266,35 @@ public abstract class JlinkImageTask extends DefaultTask {
     @Inject
     public abstract ExecOperations getExecOperations();
 
+    @Inject
+    public abstract WorkerExecutor getWorkerExecutor();
+
     @TaskAction
     public void execute() throws IOException {
+        if (getImageRuns().isPresent()) {
+            getImageRuns().get().markCycleStart();
+        }
+        javaLauncher = resolveJavaLauncher();
         Set<File> modulePathEntries = getModulePath()
                 .get()
                 .getFiles();
+        if (getDevRuntime().getOrElse(false) && assembleDevRuntime(modulePathEntries)) {
+            return;
+        }
 
-        String modulePath = Stream.concat(resolveCrossTargetJmodsFolder(), modulePathEntries.stream())
+        RegularFile jlink = javaLauncher
+                .getMetadata()
+                .getInstallationPath()
+                .dir("bin")
+                .file(Os.jlinkBinaryName());
+        Path crossTargetJmodsFolder = resolveCrossTargetJmodsFolder(jlink);
+        ModulePath.Resolution resolution = readModulePath(modulePathEntries, jdkHome(crossTargetJmodsFolder)).resolve(getAddModules().get(), getBindServices().getOrElse(false));
+        resolution.validate(systemModules(jdkHome(crossTargetJmodsFolder)).keySet());
+        // jlink does not have to scan the entries no image needs
+        List<File> usedModulePathEntries = resolution.getEntries();
+        getLogger().info("Linking {} of {} module path entries", usedModulePathEntries.size(), modulePathEntries.size());
+        Stream<File> jmodsFolders = crossTargetJmodsFolder == null ? Stream.empty() : Stream.of(crossTargetJmodsFolder.toFile());
+        String modulePath = Stream.concat(jmodsFolders, usedModulePathEntries.stream())
                 .map(File::getAbsolutePath)
                 .sorted()
                 .collect(joining(File.pathSeparator));
@@ -207,7 +327,8 @@ public abstract class JlinkImageTask extends DefaultTask {
         if (getDedupLegalNoticesErrorIfNotSameContent().getOrElse(false)) {
             args.addAll(List.of("--dedup-legal-notices", "error-if-not-same-content"));
         }
-        if (getGenerateCdsArchive().getOrElse(false)) {
+        boolean generateCdsArchive = getGenerateCdsArchive().getOrElse(false);
+        if (generateCdsArchive && crossTargetJmodsFolder == null) {
             args.add("--generate-cds-archive");
         }
         String addOptions = String.join(" ", getAddOptions().get());
@@ -220,17 +341,42 @@ public abstract class JlinkImageTask extends DefaultTask {
         for (String plugin : getDisablePlugin().get()) {
             args.addAll(List.of("--disable-plugin", plugin));
         }
-        String excludeFilesPatterns = String.join(",", getExcludeFiles().get());
+        List<String> excludeFiles = new ArrayList<>(getExcludeFiles().get());
+        if (getTrainedNativeLibraries().isPresent()) {
+            excludeFiles.addAll(unusedNativeLibraries(crossTargetJmodsFolder));
+        }
+        String excludeFilesPatterns = String.join(",", excludeFiles);
         if (!excludeFilesPatterns.isEmpty()) {
             args.addAll(List.of("--exclude-files", excludeFilesPatterns));
         }
+        List<String> unusedClasses = getTrainedLoadedClasses().isPresent() && !getShrinkModules().get().isEmpty()
+                ? unusedClasses(crossTargetJmodsFolder)
+                : List.of();
         String excludeResources = String.join(",", getExcludeResources().get());
-        if (!excludeResources.isEmpty()) {
+        if (!unusedClasses.isEmpty()) {
+            // Way too many patterns for the command line, hence the @file form of the option
+            List<String> patterns = new ArrayList<>();
+            if (!excludeResources.isEmpty()) {
+                patterns.addAll(List.of(excludeResources.split(",")));
+            }
+            patterns.addAll(unusedClasses);
+            Path patternsFile = getTemporaryDir().toPath().resolve("exclude-resources.txt");
+            Files.write(patternsFile, patterns);
+            args.add("--exclude-resources=@" + patternsFile);
+        } else if (!excludeResources.isEmpty()) {
             args.addAll(List.of("--exclude-resources", excludeResources));
         }
-        String includeLocales = String.join(",", getIncludeLocales().get());
-        if (!includeLocales.isEmpty()) {
-            args.addAll(List.of("--include-locales", includeLocales));
+        List<String> includeLocales = getIncludeLocales().get();
+        boolean derivedLocales = includeLocales.isEmpty() && (!getTargetLocales().get().isEmpty() || getTrainedLocales().isPresent());
+        if (derivedLocales) {
+            includeLocales = derivedIncludeLocales(jdkHome(crossTargetJmodsFolder), usedModulePathEntries);
+        }
+        String includeLocalesRanges = String.join(",", includeLocales);
+        if (!includeLocalesRanges.isEmpty()) {
+            args.addAll(List.of("--include-locales", includeLocalesRanges));
+        }
+        if (getTrainedJliClasses().isPresent()) {
+            args.add("--generate-jli-classes=@" + getTrainedJliClasses().get().getAsFile().getAbsolutePath());
         }
         if (getStripJavaDebugAttributes().getOrElse(false)) {
             args.add("--strip-java-debug-attributes");
@@ -261,45 +407,433 @@ public abstract class JlinkImageTask extends DefaultTask {
             args.add("--ignore-signing-information");
         }
         getFileSystemOperations().delete(spec -> spec.delete(getOutput().get()));
-        RegularFile jlink = getJavaLauncher()
-                .get()
-                .getMetadata()
-                .getInstallationPath()
-                .dir("bin")
-                .file(Os.jlinkBinaryName());
-        getExecOperations().exec(spec -> spec.args(args).executable(jlink));
+        Path output = getOutput().get().getAsFile().toPath();
+        boolean crossTargetCdsArchive = generateCdsArchive && crossTargetJmodsFolder != null;
+        String invocationKey = invocationKey(jlink, jdkHome(crossTargetJmodsFolder), usedModulePathEntries, args, crossTargetCdsArchive);
+        Path identical = getJlinkInvocations().isPresent() ? getJlinkInvocations().get().find(invocationKey) : null;
+        Path store = getLocalImageStore().isPresent() ? getLocalImageStore().get().getAsFile().toPath() : null;
+        Path stored = identical == null && store != null ? LocalImageStore.find(store, invocationKey) : null;
+        if (identical != null) {
+            getLogger().lifecycle("{} is the same as {}, reusing it", getPath(), identical);
+            ImageFiles.copy(identical, output);
+        } else if (stored != null && LocalImageStore.restore(stored, output)) {
+            getLogger().lifecycle("Restored {} from the local image store", getPath());
+        } else {
+            WorkQueue workQueue = getWorkerExecutor().noIsolation();
+            workQueue.submit(JlinkWorkAction.class, parameters -> {
+                parameters.getJlink().set(jlink);
+                parameters.getArgs().set(args);
+            });
+            // The other tasks of the project, e.g. the links of the other images, can run meanwhile
+            workQueue.await();
+            if (crossTargetCdsArchive) {
+                // jlink generates the CDS archive with the java launcher of the image, so it cannot do that for a cross target
+                generateCdsArchive(jdkHome(crossTargetJmodsFolder));
+            }
+            if (store != null) {
+                LocalImageStore.save(store, invocationKey, output, getLocalImageStoreMaxSize().get());
+            }
+        }
+        if (getJlinkInvocations().isPresent()) {
+            getJlinkInvocations().get().linked(invocationKey, output);
+        }
+        if (derivedLocales && !includeLocales.isEmpty()) {
+            long before = LocaleData.classes(jdkHome(crossTargetJmodsFolder)).values().stream().mapToLong(Long::longValue).sum();
+            long after = LocaleData.classes(output).values().stream().mapToLong(Long::longValue).sum();
+            getLogger().lifecycle("Locale data of {}: {} bytes instead of {} bytes ({} bytes saved)", LocaleData.MODULE, after, before, before - after);
+        }
+    }
+
+    // Everything the image depends on, except for the output directory and the locations of the inputs, so that the images
+    // of the same application modules and JDK are linked once, no matter where they come from
+    private String invocationKey(RegularFile jlink, Path jdkHome, List<File> modulePathEntries, List<String> args, boolean crossTargetCdsArchive) throws IOException {
+        StringBuilder key = new StringBuilder();
+        key.append(Fingerprint.sha256(jlink.getAsFile().toPath().getParent().resolveSibling(JdkRelease.RELEASE_FILE))).append('\n');
+        key.append(Fingerprint.sha256(jdkHome.resolve(JdkRelease.RELEASE_FILE))).append('\n');
+        for (File entry : modulePathEntries) {
+            key.append(Fingerprint.contentOf(entry)).append('\n');
+        }
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("--output") || arg.equals("--module-path")) {
+                i++;
+            } else if (arg.contains("=@")) {
+                // The @files are in the temporary directory of the task
+                key.append(arg, 0, arg.indexOf("=@") + 2).append(Fingerprint.sha256(Path.of(arg.substring(arg.indexOf("=@") + 2)))).append('\n');
+            } else {
+                key.append(arg).append('\n');
+            }
+        }
+        if (crossTargetCdsArchive) {
+            key.append("-Xshare:dump\n");
+            if (getTrainedCdsClassList().isPresent()) {
+                key.append(Fingerprint.sha256(getTrainedCdsClassList().get().getAsFile().toPath())).append('\n');
+            }
+        }
+        return Fingerprint.sha256(key.toString());
+    }
+
+    // False if the image has to be linked by jlink after all
+    private boolean assembleDevRuntime(Set<File> modulePathEntries) throws IOException {
+        long start = System.nanoTime();
+        Path jdkHome = javaLauncher.getMetadata().getInstallationPath().getAsFile().toPath();
+        ModulePath.Resolution resolution = readModulePath(modulePathEntries, jdkHome).resolve(getAddModules().get(), getBindServices().getOrElse(false));
+        resolution.validate(systemModules(jdkHome).keySet());
+        getFileSystemOperations().delete(spec -> spec.delete(getOutput().get()));
+        String unsupportedReason = DevRuntime.unsupportedReason(resolution.getEntries(), getOutput().get().getAsFile().toPath());
+        if (unsupportedReason != null) {
+            getLogger().warn("Linking {} with jlink instead of assembling a dev runtime, as {}", getPath(), unsupportedReason);
+            return false;
+        }
+        List<String> ignored = ignoredByDevRuntime();
+        if (!ignored.isEmpty()) {
+            getLogger().warn("The dev runtime of {} ignores {}, which only jlink can apply", getPath(), String.join(", ", ignored));
+        }
+        DevRuntime.assemble(jdkHome, resolution.getEntries(), getLauncher().get(), getAddOptions().get(), getOutput().get().getAsFile().toPath());
+        getLogger().lifecycle("Assembled {} as a dev runtime of {} and {} application modules in {} ms, without jlink",
+                getPath(), jdkHome, resolution.getEntries().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return true;
+    }
+
+    // The options that shape the image jlink links, which a dev runtime of the toolchain JDK cannot have
+    private List<String> ignoredByDevRuntime() {
+        Map<String, Boolean> configured = new LinkedHashMap<>();
+        configured.put("noManPages", getNoManPages().getOrElse(false));
+        configured.put("noHeaderFiles", getNoHeaderFiles().getOrElse(false));
+        configured.put("compress", getCompress().isPresent());
+        configured.put("stripDebug", getStripDebug().getOrElse(false));
+        configured.put("disablePlugin", !getDisablePlugin().get().isEmpty());
+        configured.put("dedupLegalNoticesErrorIfNotSameContent", getDedupLegalNoticesErrorIfNotSameContent().getOrElse(false));
+        configured.put("generateCdsArchive", getGenerateCdsArchive().getOrElse(false));
+        configured.put("excludeFiles", !getExcludeFiles().get().isEmpty());
+        configured.put("excludeResources", !getExcludeResources().get().isEmpty());
+        configured.put("includeLocales", !getIncludeLocales().get().isEmpty());
+        configured.put("stripJavaDebugAttributes", getStripJavaDebugAttributes().getOrElse(false));
+        configured.put("stripNativeCommands", getStripNativeCommands().getOrElse(false));
+        configured.put("limitModules", !getLimitModules().get().isEmpty());
+        configured.put("vm", getVm().isPresent());
+        configured.put("endian", getEndian().isPresent());
+        configured.put("vendorBugUrl", getVendorBugUrl().isPresent());
+        configured.put("vendorVersion", getVendorVersion().isPresent());
+        configured.put("vendorVmBugUrl", getVendorVmBugUrl().isPresent());
+        configured.put("shrinkModules", !getShrinkModules().get().isEmpty());
+        configured.put("targetLocales", !getTargetLocales().get().isEmpty());
+        List<String> out = new ArrayList<>();
+        configured.forEach((option, isConfigured) -> {
+            if (isConfigured) {
+                out.add(option);
+            }
+        });
+        return out;
+    }
+
+    private ModulePath readModulePath(Set<File> modulePathEntries, Path jdkHome) throws IOException {
+        int release = JdkRelease.read(jdkHome.resolve(JdkRelease.RELEASE_FILE)).getMajorVersion();
+        if (getModuleAnalysis().isPresent()) {
+            return getModuleAnalysis().get().analyze(modulePathEntries, release);
+        }
+        return ModulePath.read(modulePathEntries, release);
+    }
+
+    // The modules of the JDK, from the catalog of its jmods, or from its run-time image if it has no jmods
+    private Map<String, ModuleInfo> systemModules(Path jdkHome) throws IOException {
+        Path jmodsFolder = jdkHome.resolve(Jmods.JMODS_FOLDER);
+        return Files.isDirectory(jmodsFolder) ? moduleCatalog(jmodsFolder).getModuleInfos() : ModuleGraph.systemModules(jdkHome);
+    }
+
+    private JdkModuleCatalog moduleCatalog(Path jmodsFolder) throws IOException {
+        if (getModuleAnalysis().isPresent()) {
+            return getModuleAnalysis().get().catalog(jmodsFolder);
+        }
+        return JdkModuleCatalog.of(jmodsFolder, null);
+    }
+
+    private Path jdkHome(Path crossTargetJmodsFolder) {
+        return crossTargetJmodsFolder != null
+                ? crossTargetJmodsFolder.getParent()
+                : javaLauncher.getMetadata().getInstallationPath().getAsFile().toPath();
+    }
+
+    private void generateCdsArchive(Path jdkHome) throws IOException {
+        Path image = getOutput().get().getAsFile().toPath();
+        String platform = ImagePlatform.of(image);
+        if (!ImagePlatform.isHost(platform)) {
+            getLogger().warn("CDS archive is not generated for {}: the image is built for {}, but the build runs on {}-{}", getPath(), platform, System.getProperty("os.name"), System.getProperty("os.arch"));
+            return;
+        }
+        List<String> dumpArgs = new ArrayList<>();
+        if (getTrainedCdsClassList().isPresent()) {
+            Set<String> classList = new LinkedHashSet<>(CdsClassList.read(image.resolve("lib").resolve("classlist")));
+            int defaultEntries = classList.size();
+            List<String> trained = CdsClassList.read(getTrainedCdsClassList().get().getAsFile().toPath());
+            classList.addAll(CdsClassList.filter(trained, image, systemModules(jdkHome).keySet()));
+            Path classListFile = getTemporaryDir().toPath().resolve("cds-classlist.txt");
+            Files.write(classListFile, classList);
+            getLogger().lifecycle("Archiving {} entries of the default class list and {} more recorded during the training runs", defaultEntries, classList.size() - defaultEntries);
+            dumpArgs.add("-XX:SharedClassListFile=" + classListFile);
+        }
+        dumpArgs.add("-Xshare:dump");
+        dumpCdsArchive(image, dumpArgs);
+        if (platform.endsWith("64")) {
+            // The archive for -XX:-UseCompressedOops, e.g. for heaps of 32 GB and larger, as jlink does on 64-bit platforms
+            List<String> noCoopsArgs = new ArrayList<>(List.of("-XX:-UseCompressedOops"));
+            noCoopsArgs.addAll(dumpArgs);
+            dumpCdsArchive(image, noCoopsArgs);
+        }
+    }
+
+    private void dumpCdsArchive(Path image, List<String> dumpArgs) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ExecResult result = getExecOperations().exec(spec -> {
+            spec.setExecutable(image.resolve("bin").resolve(Os.javaBinaryName()).toFile());
+            spec.args(dumpArgs);
+            spec.setStandardOutput(output);
+            spec.setErrorOutput(output);
+            spec.setIgnoreExitValue(true);
+        });
+        getLogger().info("{}", output);
+        if (result.getExitValue() != 0) {
+            throw new GradleException("Failed to generate the CDS archive of " + getPath() + " with " + dumpArgs + ":" + System.lineSeparator() + output);
+        }
+    }
+
+    private List<String> derivedIncludeLocales(Path jdkHome, List<File> modulePathEntries) throws IOException {
+        Set<String> linked = ModuleGraph.of(systemModules(jdkHome), modulePathEntries, JdkRelease.read(jdkHome.resolve(JdkRelease.RELEASE_FILE)).getMajorVersion())
+                .resolve(getAddModules().get(), getLimitModules().get(), getBindServices().getOrElse(false));
+        if (!linked.contains(LocaleData.MODULE)) {
+            getLogger().info("{} is not linked into {}, no locales to include", LocaleData.MODULE, getPath());
+            return List.of();
+        }
+        Set<String> wanted = new TreeSet<>(getTargetLocales().get());
+        if (getTrainedLocales().isPresent()) {
+            wanted.addAll(Files.readAllLines(getTrainedLocales().get().getAsFile().toPath()));
+        }
+        List<String> includeLocales = LocaleData.includeLocales(wanted, LocaleData.locales(LocaleData.classes(jdkHome).keySet()));
+        if (includeLocales.isEmpty()) {
+            // The locale data of the wanted locales (if any) is in java.base, but --include-locales needs at least one match
+            includeLocales = List.of("en");
+        }
+        getLogger().lifecycle("Including the locales {} for {}", includeLocales, wanted);
+        return includeLocales;
     }
 
-    private Stream<File> resolveCrossTargetJmodsFolder() throws IOException {
-        if (!getCrossTargetJdk().isPresent()) {
-            return Stream.empty();
-        }
-        Path directory = getCrossTargetJdk().get().getAsFile().toPath();
-        try (Stream<Path> walker = Files.walk(directory)) {
-            List<Path> releaseFiles = walker.filter(path -> path.getFileName().toString().equals("release"))
-                    .collect(Collectors.toList());
-            for (Path releaseFile : releaseFiles) {
-                try (InputStream is = Files.newInputStream(releaseFile)) {
-                    Properties props = new Properties();
-                    props.load(is);
-                    String javaVersion = props.getProperty("JAVA_VERSION");
-                    String osName = props.getProperty("OS_NAME");
-                    String osArch = props.getProperty("OS_ARCH");
-                    if (javaVersion != null) {
-                        Path jdkRoot = releaseFile.getParent();
-                        getLogger().info("Resolved cross target JDK: {}, {}/{} in {}", javaVersion, osName, osArch, jdkRoot);
-                        Path jmodsFolder = jdkRoot.resolve("jmods");
-                        if (!Files.exists(jmodsFolder)) {
-                            throw new GradleException("jmods directory is not found. Cross-linking is not available with the given distribution. See https://openjdk.org/jeps/493 for details.");
-                        }
-                        return Stream.of(jmodsFolder.toFile());
+    // The jmods of the cross-target JDK, or null if the image is linked from the run-time image of the toolchain
+    private Path resolveCrossTargetJmodsFolder(RegularFile jlink) throws IOException {
+        Path toolchainHome = javaLauncher.getMetadata().getInstallationPath().getAsFile().toPath();
+        Path directory = crossTargetJdk();
+        if (directory == null) {
+            if (!Files.isDirectory(toolchainHome.resolve(Jmods.JMODS_FOLDER))) {
+                if (!isLinkableRuntime(jlink)) {
+                    throw new GradleException("jmods directory is not found in " + toolchainHome + ", and the JDK is not built with --enable-linkable-runtime. See https://openjdk.org/jeps/493 for details.");
+                }
+                getLogger().info("Linking {} from the run-time image of {}", getPath(), toolchainHome);
+            }
+            return null;
+        }
+        Path releaseFile = JdkRelease.findReleaseFile(directory);
+        Path jdkRoot = releaseFile.getParent();
+        getLogger().info("Resolved cross target JDK: {} in {}", JdkRelease.read(releaseFile), jdkRoot);
+        boolean toolchain = jdkRoot.equals(toolchainHome);
+        if (!toolchain && getJdkReleaseIndexEntry().isPresent()) {
+            JdkReleaseIndex.record(getJdkReleaseIndexEntry().get().getAsFile(), releaseFile);
+        }
+        Path jmodsFolder = jdkRoot.resolve(Jmods.JMODS_FOLDER);
+        if (!Files.exists(jmodsFolder)) {
+            // A linkable run-time image can only link itself, which is fine as long as it is the cross-target JDK
+            if (toolchain && isLinkableRuntime(jlink)) {
+                getLogger().lifecycle("Linking {} from the run-time image of the toolchain, as it is the same JDK as the cross-target one", getPath());
+                return null;
+            }
+            throw new GradleException("jmods directory is not found. Cross-linking is not available with the given distribution. See https://openjdk.org/jeps/493 for details.");
+        }
+        if (toolchain) {
+            getLogger().lifecycle("Linking {} with the jmods of the toolchain, as it is the same JDK as the cross-target one", getPath());
+        }
+        return jmodsFolder;
+    }
+
+    private Path crossTargetJdk() throws IOException {
+        if (getCrossTargetJdk().isPresent()) {
+            return getCrossTargetJdk().get().getAsFile().toPath();
+        }
+        if (getCrossTargetJdkArchive().isPresent()) {
+            return getJdkStore().get().acquire(getCrossTargetJdkArchive().get().getAsFile(), getCrossTargetJdkSha256().getOrNull(), this::checkCrossTargetJdkArchive);
+        }
+        return null;
+    }
+
+    // The toolchain of the task, or the one of the major version of the cross-target JDK archive, which is read here rather than
+    // while the inputs of the task are snapshotted
+    private JavaLauncher resolveJavaLauncher() throws IOException {
+        if (getJavaLauncher().isPresent()) {
+            return getJavaLauncher().get();
+        }
+        if (!getCrossTargetJdkArchive().isPresent()) {
+            throw new GradleException("The toolchain of " + getPath() + " is not set");
+        }
+        File archive = getCrossTargetJdkArchive().get().getAsFile();
+        int majorVersion = JdkArchives.summarize(archive.toPath()).getRelease().getMajorVersion();
+        if (majorVersion == -1) {
+            throw new GradleException("Cannot tell the major version of the JDK of " + archive.getName());
+        }
+        getLogger().info("{} is a JDK {}, {} links it with the toolchain of the same major version", archive.getName(), majorVersion, getPath());
+        return getJavaToolchainService().launcherFor(spec -> spec.getLanguageVersion().set(JavaLanguageVersion.of(majorVersion))).get();
+    }
+
+    // Reads just enough of the archive to tell whether jlink can link with it, which saves extracting it otherwise
+    private void checkCrossTargetJdkArchive(File archive) throws IOException {
+        JdkArchives.Summary summary = JdkArchives.summarize(archive.toPath());
+        int majorVersion = summary.getRelease().getMajorVersion();
+        int toolchainMajorVersion = javaLauncher.getMetadata().getLanguageVersion().asInt();
+        if (majorVersion != -1 && majorVersion != toolchainMajorVersion) {
+            throw new GradleException(archive.getName() + " is a JDK " + majorVersion + ", but the toolchain of " + getPath() + " is a JDK " + toolchainMajorVersion
+                    + ". jlink has to be of the same major version as the cross-target JDK.");
+        }
+        if (!summary.hasJmods()) {
+            throw new GradleException("jmods directory is not found. Cross-linking is not available with the given distribution. See https://openjdk.org/jeps/493 for details.");
+        }
+    }
+
+    private boolean isLinkableRuntime(RegularFile jlink) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        getExecOperations().exec(spec -> {
+            spec.executable(jlink);
+            spec.args("--help");
+            spec.setStandardOutput(output);
+            spec.setErrorOutput(output);
+            spec.setIgnoreExitValue(true);
+        });
+        return output.toString().contains(LINKABLE_RUNTIME);
+    }
+
+    // The jmods the training results apply to, or null if the training runs were done on another operating system
+    private Path trainedJmodsFolder(Path crossTargetJmodsFolder, String what) throws IOException {
+        if (crossTargetJmodsFolder == null) {
+            Path jmodsFolder = javaLauncher.getMetadata().getInstallationPath().dir(Jmods.JMODS_FOLDER).getAsFile().toPath();
+            if (!Files.isDirectory(jmodsFolder)) {
+                getLogger().warn("{} of {} are not pruned: the image is linked from the run-time image of the toolchain, which has no jmods", what, getPath());
+                return null;
+            }
+            return jmodsFolder;
+        }
+        JdkRelease release = JdkRelease.read(crossTargetJmodsFolder.resolveSibling(JdkRelease.RELEASE_FILE));
+        if (!Os.normalizeName(release.getOsName()).equals(Os.normalizeName(System.getProperty("os.name")))) {
+            getLogger().warn("{} of {} are not pruned: the training runs were done on {}, but the image is built for {}", what, getPath(), System.getProperty("os.name"), release.getOsName());
+            return null;
+        }
+        return crossTargetJmodsFolder;
+    }
+
+    private List<String> unusedNativeLibraries(Path crossTargetJmodsFolder) throws IOException {
+        Path jmodsFolder = trainedJmodsFolder(crossTargetJmodsFolder, "Native libraries");
+        if (jmodsFolder == null) {
+            return List.of();
+        }
+        Set<String> loaded = new HashSet<>(Files.readAllLines(getTrainedNativeLibraries().get().getAsFile().toPath()));
+        List<Pattern> allowlist = new ArrayList<>();
+        for (String library : DEFAULT_NATIVE_LIBRARIES_ALLOWLIST) {
+            allowlist.add(glob(library));
+        }
+        for (String library : getNativeLibrariesAllowlist().get()) {
+            allowlist.add(glob(library));
+        }
+        SortedMap<String, List<String>> libraries = moduleCatalog(jmodsFolder).getNativeLibraries();
+        Set<String> kept = new HashSet<>();
+        for (String fileName : libraries.keySet()) {
+            String baseName = Os.libraryBaseName(fileName);
+            if (loaded.contains(baseName)
+                    || loaded.stream().anyMatch(library -> baseName.startsWith(library + "_"))
+                    || allowlist.stream().anyMatch(pattern -> pattern.matcher(baseName).matches() || pattern.matcher(fileName).matches())) {
+                kept.add(fileName);
+            }
+        }
+        Deque<String> dependants = new ArrayDeque<>(kept);
+        while (!dependants.isEmpty()) {
+            for (String dependency : libraries.get(dependants.pop())) {
+                if (libraries.containsKey(dependency) && kept.add(dependency)) {
+                    dependants.push(dependency);
+                }
+            }
+        }
+        List<String> unused = new ArrayList<>(libraries.keySet());
+        unused.removeAll(kept);
+        getLogger().lifecycle("Excluding {} native libraries not loaded during the training runs: {}", unused.size(), unused);
+        return unused.stream()
+                .map(fileName -> "/**/" + fileName)
+                .collect(Collectors.toList());
+    }
+
+    private List<String> unusedClasses(Path crossTargetJmodsFolder) throws IOException {
+        Path jmodsFolder = trainedJmodsFolder(crossTargetJmodsFolder, "Classes");
+        if (jmodsFolder == null) {
+            return List.of();
+        }
+        Set<String> loaded = new HashSet<>(Files.readAllLines(getTrainedLoadedClasses().get().getAsFile().toPath()));
+        List<Pattern> keepClasses = new ArrayList<>();
+        for (String className : getKeepClasses().get()) {
+            keepClasses.add(glob(className));
+        }
+        List<String> patterns = new ArrayList<>();
+        int excluded = 0;
+        JdkModuleCatalog catalog = moduleCatalog(jmodsFolder);
+        for (String module : getShrinkModules().get()) {
+            Path jmod = Jmods.of(jmodsFolder, module);
+            if (!catalog.getModules().containsKey(module) || !Files.exists(jmod)) {
+                throw new GradleException("Module " + module + " cannot be shrunk as it is not found in " + jmodsFolder);
+            }
+            ModuleInfo moduleInfo = catalog.getModules().get(module).getModuleInfo();
+            // Service providers are instantiated reflectively, and they may be looked up by the code paths the training runs missed
+            Set<String> kept = new HashSet<>();
+            for (List<String> providers : moduleInfo.getProvides().values()) {
+                for (String provider : providers) {
+                    kept.add(provider.replace('.', '/'));
+                }
+            }
+            SortedSet<String> classes = Jmods.classes(jmod);
+            for (String className : classes) {
+                String binaryName = className.replace('/', '.');
+                if (loaded.contains(className) || keepClasses.stream().anyMatch(pattern -> pattern.matcher(binaryName).matches())) {
+                    kept.add(className);
+                    for (int i = className.indexOf('$'); i != -1; i = className.indexOf('$', i + 1)) {
+                        kept.add(className.substring(0, i));
                     }
-                } catch (IOException e) {
-                    getLogger().info("Cannot read 'release' file", e);
                 }
             }
+            Set<String> usedPackages = new HashSet<>();
+            Map<String, List<String>> unusedByPackage = new TreeMap<>();
+            for (String className : classes) {
+                String packageName = className.substring(0, Math.max(className.lastIndexOf('/'), 0));
+                if (kept.contains(className)) {
+                    usedPackages.add(packageName);
+                } else {
+                    unusedByPackage.computeIfAbsent(packageName, it -> new ArrayList<>()).add(className);
+                }
+            }
+            for (Map.Entry<String, List<String>> entry : unusedByPackage.entrySet()) {
+                List<String> unused = entry.getValue();
+                if (!usedPackages.contains(entry.getKey())) {
+                    // jlink refuses to link a module if any of its packages is empty
+                    unused = unused.subList(1, unused.size());
+                }
+                for (String className : unused) {
+                    patterns.add("/" + module + "/" + className + ".class");
+                }
+                excluded += unused.size();
+            }
+        }
+        getLogger().lifecycle("Excluding {} classes of {} not loaded during the training runs", excluded, getShrinkModules().get());
+        return patterns;
+    }
+
+    private static Pattern glob(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (String part : glob.split("\\*", -1)) {
+            if (regex.length() > 0) {
+                regex.append(".*");
+            }
+            regex.append(Pattern.quote(part));
         }
-        throw new GradleException("Cannot find a valid 'release' file in " + directory + " or any of its subdirectories");
+        return Pattern.compile(regex.toString());
     }
 
 }
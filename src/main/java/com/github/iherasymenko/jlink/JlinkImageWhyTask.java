@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Nested;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.gradle.jvm.toolchain.JavaLauncher;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// Tells why every module is linked into the image: the shortest chain of modules from the roots that requires it, its size,
+// and the size of what is linked only because of it, i.e. what removing the module from the graph would save
+public abstract class JlinkImageWhyTask extends DefaultTask {
+
+    @Nested
+    public abstract Property<JavaLauncher> getJavaLauncher();
+
+    @Classpath
+    public abstract Property<FileCollection> getModulePath();
+
+    @Input
+    public abstract ListProperty<String> getAddModules();
+
+    @Input
+    public abstract ListProperty<String> getLimitModules();
+
+    @Input
+    @Optional
+    public abstract Property<Boolean> getBindServices();
+
+    // Reports the given module only
+    @Input
+    @Optional
+    @Option(option = "module", description = "The module to tell why it is linked")
+    public abstract Property<String> getModule();
+
+    @OutputFile
+    public abstract RegularFileProperty getReport();
+
+    @Internal
+    public abstract Property<ModuleAnalysisService> getModuleAnalysis();
+
+    @TaskAction
+    public void execute() throws IOException {
+        Set<File> modulePathEntries = getModulePath().get().getFiles();
+        Path jdkHome = getJavaLauncher().get().getMetadata().getInstallationPath().getAsFile().toPath();
+        Path jmodsFolder = jdkHome.resolve(Jmods.JMODS_FOLDER);
+        Map<String, Long> jdkSizes = new TreeMap<>();
+        Map<String, ModuleInfo> systemModules;
+        if (Files.isDirectory(jmodsFolder)) {
+            JdkModuleCatalog catalog = getModuleAnalysis().isPresent() ? getModuleAnalysis().get().catalog(jmodsFolder) : JdkModuleCatalog.of(jmodsFolder, null);
+            catalog.getModules().forEach((name, module) -> jdkSizes.put(name, module.getUncompressedSize()));
+            systemModules = catalog.getModuleInfos();
+        } else {
+            systemModules = ModuleGraph.systemModules(jdkHome);
+            jdkSizes.putAll(runtimeImageSizes(jdkHome));
+        }
+        int release = JdkRelease.read(jdkHome.resolve(JdkRelease.RELEASE_FILE)).getMajorVersion();
+        ModulePath modulePath = getModuleAnalysis().isPresent() ? getModuleAnalysis().get().analyze(modulePathEntries, release) : ModulePath.read(modulePathEntries, release);
+        ModuleGraph graph = ModuleGraph.of(systemModules, modulePathEntries, release);
+        List<String> roots = getAddModules().get();
+        List<String> limitModules = getLimitModules().get();
+        boolean bindServices = getBindServices().getOrElse(false);
+        Map<String, List<String>> paths = graph.resolvePaths(roots, limitModules, bindServices);
+
+        Map<String, Long> sizes = new TreeMap<>();
+        for (String module : paths.keySet()) {
+            File entry = modulePath.getEntry(module);
+            sizes.put(module, entry != null ? uncompressedSize(entry.toPath()) : jdkSizes.getOrDefault(module, 0L));
+        }
+        long total = sizes.values().stream().mapToLong(Long::longValue).sum();
+
+        List<String> modules = new ArrayList<>(paths.keySet());
+        if (getModule().isPresent()) {
+            String module = getModule().get();
+            if (!paths.containsKey(module)) {
+                throw new GradleException("Module " + module + " is not linked into the image of " + getPath());
+            }
+            modules = Collections.singletonList(module);
+        }
+        modules.sort(Comparator.comparing((String module) -> sizes.get(module)).reversed().thenComparing(Comparator.naturalOrder()));
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%d modules, %d bytes (the uncompressed contents of the modules)", paths.size(), total));
+        for (String module : modules) {
+            long exclusive = total;
+            if (!roots.contains(module)) {
+                for (String remaining : graph.resolveWithout(module, roots, limitModules, bindServices)) {
+                    exclusive -= sizes.getOrDefault(remaining, 0L);
+                }
+            }
+            report.add(String.format("%s: %d bytes, %d bytes with the modules linked only because of it", module, sizes.get(module), exclusive));
+            report.add("    " + String.join(" -> ", paths.get(module)));
+        }
+
+        Files.write(getReport().get().getAsFile().toPath(), report);
+        for (String line : report) {
+            getLogger().lifecycle(line);
+        }
+    }
+
+    // The sizes of the modules of a run-time image without jmods, as jlink would link them from it
+    private static Map<String, Long> runtimeImageSizes(Path jdkHome) throws IOException {
+        Map<String, Long> out = new TreeMap<>();
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", jdkHome.toString()));
+             Stream<Path> modules = Files.list(jrt.getPath("/modules"))) {
+            for (Path module : (Iterable<Path>) modules::iterator) {
+                out.put(module.getFileName().toString(), size(module));
+            }
+        }
+        return out;
+    }
+
+    // The same measure as the one of the jmods of the JDK: the uncompressed sizes of the entries of a jar or a jmod,
+    // or the sizes of the files of an exploded module
+    private static long uncompressedSize(Path entry) throws IOException {
+        if (Files.isDirectory(entry)) {
+            return size(entry);
+        }
+        long size = 0;
+        try (ZipFile zip = new ZipFile(entry.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                size += Math.max(entries.nextElement().getSize(), 0);
+            }
+        }
+        return size;
+    }
+
+    private static long size(Path path) throws IOException {
+        try (Stream<Path> files = Files.walk(path)) {
+            long size = 0;
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                size += Files.size(file);
+            }
+            return size;
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The images linked during the build by their invocation keys, so that the image tasks with identical jlink invocations,
+// e.g. of sibling projects, reuse the image linked first. A task never waits for an identical link in progress: it holds
+// a worker lease while the link needs one, which deadlocks with as many identical images as workers.
+public abstract class JlinkInvocationService implements BuildService<BuildServiceParameters.None> {
+
+    static final String NAME = "jlinkInvocations";
+
+    private final Map<String, Path> images = new ConcurrentHashMap<>();
+
+    // The image linked for the key, or null if there is none yet
+    Path find(String key) {
+        Path image = images.get(key);
+        return image != null && Files.isDirectory(image) ? image : null;
+    }
+
+    void linked(String key, Path image) {
+        images.putIfAbsent(key, image);
+    }
+
+}
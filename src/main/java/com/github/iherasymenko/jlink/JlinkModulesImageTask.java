@@ -37,6 +37,7 @@ public abstract class JlinkModulesImageTask extends DefaultTask {
     public void execute() {
         getExecOperations().exec(spec -> {
             spec.setExecutable(getImageDirectory().get().dir("bin").file(javaBinaryName()));
+            spec.args(DevRuntime.javaArgs(getImageDirectory().get().getAsFile().toPath()));
             spec.args("--list-modules");
         });
     }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Downloads and extracts the JDK archives of all the images at once, e.g. as a warm-up step of CI, instead of one by one
+// as the image tasks need them. The archives of the repositories are resolved by Gradle in one go, which downloads them in parallel,
+// while the archives with URLs are downloaded meanwhile.
+public abstract class JlinkPrefetchTask extends DefaultTask {
+
+    // Image name to the URL of its archive
+    @Internal
+    public abstract MapProperty<String, String> getArchiveUrls();
+
+    // Image name to the file name of its archive in the repositories
+    @Internal
+    public abstract MapProperty<String, String> getArchiveNames();
+
+    @Internal
+    public abstract ConfigurableFileCollection getRepositoryArchives();
+
+    @Internal
+    public abstract MapProperty<String, String> getSha256();
+
+    @Internal
+    public abstract MapProperty<String, File> getReleaseIndexEntries();
+
+    @Internal
+    public abstract Property<JdkStore> getJdkStore();
+
+    @Internal
+    public abstract Property<JdkDownloadService> getJdkDownloads();
+
+    @TaskAction
+    public void execute() throws IOException, InterruptedException {
+        Map<String, String> archiveUrls = getArchiveUrls().get();
+        Map<String, String> archiveNames = getArchiveNames().get();
+        int archives = archiveUrls.size() + archiveNames.size();
+        if (archives == 0) {
+            getLogger().lifecycle("No JDK archives to prefetch");
+            return;
+        }
+        long start = System.nanoTime();
+        Map<String, Future<Prefetched>> prefetched = new TreeMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(archives, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "jlink JDK prefetch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            archiveUrls.forEach((image, url) -> prefetched.put(image, executor.submit(prefetch(image, () -> getJdkDownloads().get().download(url), "downloaded"))));
+            // Configurations are resolved by the task thread only
+            if (!archiveNames.isEmpty()) {
+                long resolutionStart = System.nanoTime();
+                Map<String, File> files = new HashMap<>();
+                for (File file : getRepositoryArchives().getFiles()) {
+                    files.put(file.getName(), file);
+                }
+                long resolutionNanos = System.nanoTime() - resolutionStart;
+                archiveNames.forEach((image, archiveName) -> prefetched.put(image, executor.submit(prefetch(image, () -> {
+                    File file = files.get(archiveName);
+                    if (file == null) {
+                        throw new GradleException(archiveName + " of the image " + image + " is not resolved from the repositories");
+                    }
+                    return file;
+                }, "resolved", resolutionNanos))));
+            }
+            List<Throwable> failures = new ArrayList<>();
+            long bytes = 0;
+            for (Map.Entry<String, Future<Prefetched>> entry : prefetched.entrySet()) {
+                try {
+                    Prefetched result = entry.getValue().get();
+                    bytes += result.bytes;
+                    getLogger().lifecycle("{}: {} ({} bytes) {} in {}, extracted in {}", entry.getKey(), result.archive.getName(), result.bytes,
+                            result.fetchedHow, seconds(result.fetchNanos), seconds(result.extractNanos));
+                } catch (ExecutionException e) {
+                    getLogger().error("{}: {}", entry.getKey(), e.getCause().getMessage());
+                    failures.add(e.getCause());
+                }
+            }
+            getLogger().lifecycle("Prefetched {} of {} JDK archive(s) ({} bytes) in {}", archives - failures.size(), archives, bytes, seconds(System.nanoTime() - start));
+            if (!failures.isEmpty()) {
+                GradleException exception = new GradleException("Cannot prefetch " + failures.size() + " of " + archives + " JDK archive(s)", failures.get(0));
+                failures.stream().skip(1).forEach(exception::addSuppressed);
+                throw exception;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Callable<Prefetched> prefetch(String image, Callable<File> fetch, String fetchedHow) {
+        return prefetch(image, fetch, fetchedHow, -1);
+    }
+
+    // The fetch time of the archives of the repositories is the one of their common resolution
+    private Callable<Prefetched> prefetch(String image, Callable<File> fetch, String fetchedHow, long fetchNanos) {
+        return () -> {
+            long fetchStart = System.nanoTime();
+            File archive = fetch.call();
+            long fetched = System.nanoTime();
+            Path jdk = getJdkStore().get().acquire(archive, getSha256().get().get(image), JlinkPrefetchTask::checkArchive);
+            long extractNanos = System.nanoTime() - fetched;
+            // The next builds tell the major version of the archive, and whether it is the same JDK as the toolchain, without reading it
+            File releaseIndexEntry = getReleaseIndexEntries().get().get(image);
+            Path releaseFile = jdk.resolve(JdkRelease.RELEASE_FILE);
+            if (releaseIndexEntry != null && !releaseIndexEntry.isFile() && Files.isRegularFile(releaseFile)) {
+                JdkReleaseIndex.record(releaseIndexEntry, releaseFile);
+            }
+            return new Prefetched(archive, Files.size(archive.toPath()), fetchedHow, fetchNanos == -1 ? fetched - fetchStart : fetchNanos, extractNanos);
+        };
+    }
+
+    private static void checkArchive(File archive) throws IOException {
+        if (!JdkArchives.summarize(archive.toPath()).hasJmods()) {
+            throw new GradleException("jmods directory is not found in " + archive.getName() + ". Cross-linking is not available with the given distribution. See https://openjdk.org/jeps/493 for details.");
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.1f s", nanos / 1e9);
+    }
+
+    private static final class Prefetched {
+
+        private final File archive;
+
+        private final long bytes;
+
+        private final String fetchedHow;
+
+        private final long fetchNanos;
+
+        private final long extractNanos;
+
+        private Prefetched(File archive, long bytes, String fetchedHow, long fetchNanos, long extractNanos) {
+            this.archive = archive;
+            this.bytes = bytes;
+            this.fetchedHow = fetchedHow;
+            this.fetchNanos = fetchNanos;
+            this.extractNanos = extractNanos;
+        }
+
+    }
+
+}
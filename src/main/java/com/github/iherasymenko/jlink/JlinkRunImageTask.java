@@ -16,19 +16,48 @@
 package com.github.iherasymenko.jlink;
 
 import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
 import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.TaskAction;
+import org.gradle.api.tasks.options.Option;
+import org.gradle.deployment.internal.DeploymentRegistry;
 import org.gradle.process.ExecOperations;
 
 import javax.inject.Inject;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.github.iherasymenko.jlink.Os.javaBinaryName;
 
 public abstract class JlinkRunImageTask extends DefaultTask {
 
+    // The processes started by --watch are stopped with the daemon at the latest, or with the continuous build, see WatchedApplication
+    private static final Set<ProcessHandle> WATCHED = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> WATCHED.forEach(ProcessHandle::destroy)));
+    }
+
+    public JlinkRunImageTask() {
+        getWatch().convention(false);
+        getFirstOutputTimeoutMillis().convention(30_000L);
+    }
+
     @InputDirectory
     public abstract DirectoryProperty getImageDirectory();
 
@@ -38,16 +67,154 @@ public abstract class JlinkRunImageTask extends DefaultTask {
     @Input
     public abstract Property<String> getMainClass();
 
+    // Keeps the application running in the background, and restarts it whenever the image changes, e.g. with 'gradle -t imageRun --watch'
+    @Input
+    @Option(option = "watch", description = "Keeps the application running, and restarts it on every change of the image with --continuous")
+    public abstract Property<Boolean> getWatch();
+
+    @Input
+    public abstract Property<Long> getFirstOutputTimeoutMillis();
+
+    // The process id of the application running in the background and the fingerprint of its image
+    @Internal
+    public abstract RegularFileProperty getPidFile();
+
+    // The output of the application running in the background
+    @Internal
+    public abstract RegularFileProperty getLogFile();
+
+    @Internal
+    public abstract Property<ImageRunService> getImageRuns();
+
+    // Whether the build is continuous, i.e. the application started by --watch is stopped when the continuous build ends
+    @Internal
+    public abstract Property<Boolean> getContinuousBuild();
+
+    @Inject
+    public abstract DeploymentRegistry getDeploymentRegistry();
+
     @Inject
     public abstract ExecOperations getExecOperations();
 
     @TaskAction
-    public void execute() {
-        getExecOperations().javaexec(spec -> {
-            spec.getMainClass().set(getMainClass());
-            spec.getMainModule().set(getMainModule());
-            spec.setExecutable(getImageDirectory().get().dir("bin").file(javaBinaryName()));
-        });
+    public void execute() throws IOException, InterruptedException {
+        Path image = getImageDirectory().get().getAsFile().toPath();
+        if (!getWatch().get()) {
+            stopWatched(readPidFile());
+            getExecOperations().javaexec(spec -> {
+                spec.getMainClass().set(getMainClass());
+                spec.getMainModule().set(getMainModule());
+                spec.setExecutable(getImageDirectory().get().dir("bin").file(javaBinaryName()));
+                spec.jvmArgs(DevRuntime.javaArgs(image));
+            });
+            return;
+        }
+        long cycleStart = getImageRuns().isPresent() ? getImageRuns().get().getCycleStart() : -1;
+        String fingerprint = Fingerprint.sha256(Fingerprint.of(List.of(image.toFile())));
+        List<String> running = readPidFile();
+        if (running.size() == 2 && running.get(1).equals(fingerprint) && isAlive(processOf(running))) {
+            getLogger().lifecycle("The image is unchanged, the application keeps running (pid {})", running.get(0));
+            return;
+        }
+        // The previous process runs while the image is relinked, and it is stopped right before the new one starts
+        long stopStart = System.nanoTime();
+        stopWatched(running);
+        long stopped = System.nanoTime();
+
+        File logFile = getLogFile().get().getAsFile();
+        Files.createDirectories(logFile.toPath().getParent());
+        List<String> command = new ArrayList<>();
+        command.add(image.resolve("bin").resolve(javaBinaryName()).toString());
+        command.addAll(DevRuntime.javaArgs(image));
+        command.addAll(List.of("-m", getMainModule().get() + "/" + getMainClass().get()));
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile)
+                .start();
+        ProcessHandle handle = process.toHandle();
+        WATCHED.add(handle);
+        if (getContinuousBuild().getOrElse(false)) {
+            watchedApplication().watch(handle);
+        }
+        Files.write(getPidFile().get().getAsFile().toPath(), List.of(Long.toString(process.pid()), fingerprint), StandardCharsets.UTF_8);
+
+        long deadline = stopped + TimeUnit.MILLISECONDS.toNanos(getFirstOutputTimeoutMillis().get());
+        while (logFile.length() == 0 && process.isAlive() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        long firstOutput = System.nanoTime();
+        for (String line : Files.readAllLines(logFile.toPath(), StandardCharsets.UTF_8)) {
+            getLogger().lifecycle(line);
+        }
+        if (logFile.length() == 0 && process.isAlive()) {
+            getLogger().warn("No output of the application (pid {}) within {} ms", process.pid(), getFirstOutputTimeoutMillis().get());
+        } else if (cycleStart != -1) {
+            getLogger().lifecycle("Relink-to-first-output: {} ms (the build up to the restart {} ms, the stop of the previous process {} ms, the first output {} ms after the start)",
+                    millis(firstOutput - cycleStart), millis(stopStart - cycleStart), millis(stopped - stopStart), millis(firstOutput - stopped));
+        } else {
+            // Restarted without a relink, e.g. the application exited, but the image is up-to-date
+            getLogger().lifecycle("Restart-to-first-output: {} ms (the stop of the previous process {} ms, the first output {} ms after the start)",
+                    millis(firstOutput - stopStart), millis(stopped - stopStart), millis(firstOutput - stopped));
+        }
+        if (!process.isAlive()) {
+            WATCHED.remove(handle);
+            if (process.exitValue() != 0) {
+                throw new GradleException("The application exited with " + process.exitValue() + ", see " + logFile);
+            }
+            getLogger().lifecycle("The application exited");
+        } else {
+            getLogger().lifecycle("The application keeps running (pid {}), its output goes to {}", process.pid(), logFile);
+        }
+    }
+
+    private List<String> readPidFile() throws IOException {
+        Path pidFile = getPidFile().get().getAsFile().toPath();
+        return Files.isRegularFile(pidFile) ? Files.readAllLines(pidFile, StandardCharsets.UTF_8) : List.of();
+    }
+
+    // Null if there is no such process anymore
+    private static ProcessHandle processOf(List<String> pidFile) {
+        try {
+            return pidFile.isEmpty() ? null : ProcessHandle.of(Long.parseLong(pidFile.get(0))).orElse(null);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isAlive(ProcessHandle process) {
+        return process != null && process.isAlive();
+    }
+
+    // The deployment of this task in the continuous build, which outlives the build cycles
+    private WatchedApplication watchedApplication() {
+        WatchedApplication application = getDeploymentRegistry().get(getPath(), WatchedApplication.class);
+        return application != null ? application : getDeploymentRegistry().start(getPath(), DeploymentRegistry.ChangeBehavior.NONE, WatchedApplication.class);
+    }
+
+    private void stopWatched(List<String> pidFile) throws IOException {
+        ProcessHandle process = processOf(pidFile);
+        if (isAlive(process)) {
+            getLogger().lifecycle("Stopping the application (pid {})", process.pid());
+            stop(process);
+        }
+        Files.deleteIfExists(getPidFile().get().getAsFile().toPath());
+    }
+
+    static void stop(ProcessHandle process) {
+        process.destroy();
+        try {
+            process.onExit().get(10, TimeUnit.SECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        WATCHED.remove(process);
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
     }
 
 }
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputDirectory;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.process.ExecOperations;
+
+import javax.inject.Inject;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.github.iherasymenko.jlink.Os.javaBinaryName;
+
+public abstract class JlinkTrainingRunTask extends DefaultTask {
+
+    static final String NATIVE_LIBRARIES_FILE = "native-libraries.txt";
+
+    static final String LOADED_CLASSES_FILE = "loaded-classes.txt";
+
+    static final String LOCALES_FILE = "locales.txt";
+
+    static final String JLI_CLASSES_FILE = "jli-classes.txt";
+
+    static final String CDS_CLASS_LIST_FILE = "cds-classlist.txt";
+
+    private static final Pattern LOADED_LIBRARY = Pattern.compile("Loaded library (.+), handle");
+
+    private static final Pattern LOADED_CLASS = Pattern.compile("\\] (\\S+) source: ");
+
+    public JlinkTrainingRunTask() {
+        getRecordNativeLibraries().convention(false);
+        getRecordLoadedClasses().convention(false);
+        getRecordLocales().convention(false);
+        getRecordJliClasses().convention(false);
+        getRecordCdsClassList().convention(false);
+    }
+
+    @InputDirectory
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract DirectoryProperty getImageDirectory();
+
+    @Input
+    public abstract Property<String> getMainModule();
+
+    @Input
+    public abstract Property<String> getMainClass();
+
+    @Input
+    public abstract MapProperty<String, List<String>> getRuns();
+
+    @Input
+    public abstract Property<Boolean> getRecordNativeLibraries();
+
+    @Input
+    public abstract Property<Boolean> getRecordLoadedClasses();
+
+    @Input
+    public abstract Property<Boolean> getRecordLocales();
+
+    @Input
+    public abstract Property<Boolean> getRecordJliClasses();
+
+    @Input
+    public abstract Property<Boolean> getRecordCdsClassList();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutput();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @Inject
+    public abstract ExecOperations getExecOperations();
+
+    @TaskAction
+    public void execute() throws IOException {
+        Path image = getImageDirectory().get().getAsFile().toPath();
+        Path output = getOutput().get().getAsFile().toPath();
+        getFileSystemOperations().delete(spec -> spec.delete(getTemporaryDir()));
+        Files.createDirectories(getTemporaryDir().toPath());
+
+        JdkRelease release = JdkRelease.read(image.resolve(JdkRelease.RELEASE_FILE));
+        if (getRecordNativeLibraries().get() && release.getMajorVersion() < 17) {
+            throw new GradleException("Recording of the loaded native libraries requires JDK 17 or newer, but the image is built with " + release.getJavaVersion());
+        }
+
+        Map<String, List<String>> runs = getRuns().get();
+        if (runs.isEmpty()) {
+            runs = Collections.singletonMap("default", Collections.emptyList());
+        }
+        SortedSet<String> nativeLibraries = new TreeSet<>();
+        SortedSet<String> loadedClasses = new TreeSet<>();
+        SortedSet<String> jliClasses = new TreeSet<>();
+        Set<String> cdsClassList = new LinkedHashSet<>();
+        boolean recordClassLoading = getRecordLoadedClasses().get() || getRecordLocales().get();
+        for (Map.Entry<String, List<String>> run : runs.entrySet()) {
+            String runName = run.getKey();
+            File libraryLog = new File(getTemporaryDir(), runName + "-library.log");
+            File classLoadLog = new File(getTemporaryDir(), runName + "-class-load.log");
+            File classList = new File(getTemporaryDir(), runName + "-classlist.txt");
+            List<String> jvmArgs = new ArrayList<>();
+            if (getRecordNativeLibraries().get()) {
+                jvmArgs.add("-Xlog:library=info:file=\"" + libraryLog.getAbsolutePath() + "\"");
+            }
+            if (recordClassLoading) {
+                jvmArgs.add("-Xlog:class+load=info:file=\"" + classLoadLog.getAbsolutePath() + "\"");
+            }
+            if (getRecordJliClasses().get()) {
+                // Prints the [LF_RESOLVE] and [SPECIES_RESOLVE] lines --generate-jli-classes understands to stdout
+                jvmArgs.add("-Djava.lang.invoke.MethodHandle.TRACE_RESOLVE=true");
+            }
+            if (getRecordCdsClassList().get()) {
+                jvmArgs.add("-XX:DumpLoadedClassList=" + classList.getAbsolutePath());
+            }
+            getLogger().lifecycle("Training run '{}': {}", runName, run.getValue());
+            TraceResolveFilter traceResolveFilter = new TraceResolveFilter(System.out, jliClasses);
+            getExecOperations().exec(spec -> {
+                spec.setExecutable(image.resolve("bin").resolve(javaBinaryName()).toFile());
+                spec.args(DevRuntime.javaArgs(image));
+                spec.args(jvmArgs);
+                spec.args("-m", getMainModule().get() + "/" + getMainClass().get());
+                spec.args(run.getValue());
+                if (getRecordJliClasses().get()) {
+                    spec.setStandardOutput(traceResolveFilter);
+                }
+            });
+            traceResolveFilter.finish();
+            if (getRecordNativeLibraries().get()) {
+                nativeLibraries.addAll(loadedLibraries(libraryLog.toPath()));
+            }
+            if (recordClassLoading) {
+                loadedClasses.addAll(loadedClasses(classLoadLog.toPath()));
+            }
+            if (getRecordCdsClassList().get()) {
+                cdsClassList.addAll(CdsClassList.read(classList.toPath()));
+            }
+        }
+
+        if (getRecordNativeLibraries().get()) {
+            Files.write(output.resolve(NATIVE_LIBRARIES_FILE), nativeLibraries);
+            getLogger().info("Native libraries loaded during the training runs: {}", nativeLibraries);
+        }
+        if (getRecordLoadedClasses().get()) {
+            Files.write(output.resolve(LOADED_CLASSES_FILE), loadedClasses);
+            getLogger().info("{} classes loaded during the training runs", loadedClasses.size());
+        }
+        if (getRecordJliClasses().get()) {
+            Files.write(output.resolve(JLI_CLASSES_FILE), jliClasses);
+            getLogger().info("{} java.lang.invoke classes resolved during the training runs", jliClasses.size());
+        }
+        if (getRecordCdsClassList().get()) {
+            Files.write(output.resolve(CDS_CLASS_LIST_FILE), cdsClassList);
+            getLogger().info("{} entries of the CDS class list recorded during the training runs", cdsClassList.size());
+        }
+        if (getRecordLocales().get()) {
+            SortedSet<String> locales = LocaleData.locales(loadedClasses);
+            Files.write(output.resolve(LOCALES_FILE), locales);
+            getLogger().lifecycle("Locales used during the training runs: {}", locales);
+        }
+    }
+
+    private static SortedSet<String> loadedLibraries(Path libraryLog) throws IOException {
+        SortedSet<String> out = new TreeSet<>();
+        if (!Files.exists(libraryLog)) {
+            return out;
+        }
+        for (String line : Files.readAllLines(libraryLog, StandardCharsets.UTF_8)) {
+            Matcher matcher = LOADED_LIBRARY.matcher(line);
+            if (matcher.find()) {
+                String library = matcher.group(1).trim();
+                String fileName = library.substring(Math.max(library.lastIndexOf('/'), library.lastIndexOf('\\')) + 1);
+                String baseName = Os.libraryBaseName(fileName);
+                if (baseName != null) {
+                    out.add(baseName);
+                }
+            }
+        }
+        return out;
+    }
+
+    // Internal names, e.g. java/lang/String, of the classes loaded from the image. Hidden classes are skipped.
+    private static SortedSet<String> loadedClasses(Path classLoadLog) throws IOException {
+        SortedSet<String> out = new TreeSet<>();
+        if (!Files.exists(classLoadLog)) {
+            return out;
+        }
+        for (String line : Files.readAllLines(classLoadLog, StandardCharsets.UTF_8)) {
+            Matcher matcher = LOADED_CLASS.matcher(line);
+            if (matcher.find() && matcher.group(1).indexOf('/') == -1) {
+                out.add(matcher.group(1).replace('.', '/'));
+            }
+        }
+        return out;
+    }
+
+    // Takes the java.lang.invoke trace lines out of the output of the application
+    private static final class TraceResolveFilter extends OutputStream {
+
+        private static final Pattern TRACE = Pattern.compile("\\[(LF|SPECIES)_RESOLVE] ");
+
+        private final OutputStream delegate;
+        private final Set<String> traces;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        TraceResolveFilter(OutputStream delegate, Set<String> traces) {
+            this.delegate = delegate;
+            this.traces = traces;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            line.write(b);
+            if (b == '\n') {
+                endLine();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        // Not done on close() as that is called by the thread copying the output of the process,
+        // and whatever it prints is not attributed to the task anymore
+        void finish() throws IOException {
+            if (line.size() > 0) {
+                // The build output is line-buffered, so the last line would not be shown otherwise
+                line.write('\n');
+                endLine();
+            }
+            delegate.flush();
+        }
+
+        private void endLine() throws IOException {
+            String text = line.toString(Charset.defaultCharset());
+            line.reset();
+            Matcher matcher = TRACE.matcher(text);
+            if (!matcher.find()) {
+                delegate.write(text.getBytes(Charset.defaultCharset()));
+                return;
+            }
+            // A trace line printed after the application printed a line without a line separator
+            if (matcher.start() > 0) {
+                delegate.write(text.substring(0, matcher.start()).getBytes(Charset.defaultCharset()));
+                delegate.write(System.lineSeparator().getBytes(Charset.defaultCharset()));
+            }
+            traces.add(text.substring(matcher.start()).trim());
+        }
+
+    }
+
+}
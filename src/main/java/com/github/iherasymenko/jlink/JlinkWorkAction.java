@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.process.ExecOperations;
+import org.gradle.workers.WorkAction;
+import org.gradle.workers.WorkParameters;
+
+import javax.inject.Inject;
+
+// Runs jlink in a worker, so that the images of a project are linked in parallel
+public abstract class JlinkWorkAction implements WorkAction<JlinkWorkAction.Parameters> {
+
+    public interface Parameters extends WorkParameters {
+
+        RegularFileProperty getJlink();
+
+        ListProperty<String> getArgs();
+
+    }
+
+    @Inject
+    protected abstract ExecOperations getExecOperations();
+
+    @Override
+    public void execute() {
+        getExecOperations().exec(spec -> spec.args(getParameters().getArgs().get()).executable(getParameters().getJlink().get()));
+    }
+
+}
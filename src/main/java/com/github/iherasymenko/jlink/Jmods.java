@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+final class Jmods {
+
+    static final String JMODS_FOLDER = "jmods";
+
+    static final String CLASSES_SECTION = "classes/";
+
+    private static final String MODULE_INFO = "module-info.class";
+
+    private Jmods() {
+    }
+
+    static List<Path> list(Path jmodsFolder) throws IOException {
+        try (Stream<Path> files = Files.list(jmodsFolder)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".jmod"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static Path of(Path jmodsFolder, String module) {
+        return jmodsFolder.resolve(module + ".jmod");
+    }
+
+    static ModuleInfo moduleInfo(Path jmod) throws IOException {
+        try (ZipFile zip = new ZipFile(jmod.toFile())) {
+            ZipEntry entry = zip.getEntry(CLASSES_SECTION + MODULE_INFO);
+            if (entry == null) {
+                throw new IOException(MODULE_INFO + " is not found in " + jmod);
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                return ModuleInfo.read(in.readAllBytes());
+            }
+        }
+    }
+
+    // Internal names, e.g. java/lang/String, of the classes packaged in the 'classes' section of the jmod
+    static SortedSet<String> classes(Path jmod) throws IOException {
+        SortedSet<String> out = new TreeSet<>();
+        try (ZipFile zip = new ZipFile(jmod.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+                if (name.startsWith(CLASSES_SECTION) && name.endsWith(".class") && !name.endsWith(MODULE_INFO) && !name.endsWith("/package-info.class")) {
+                    out.add(name.substring(CLASSES_SECTION.length(), name.length() - ".class".length()));
+                }
+            }
+        }
+        return out;
+    }
+
+}
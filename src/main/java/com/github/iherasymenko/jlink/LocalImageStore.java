@@ -0,0 +1,183 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The images linked before, kept in the Gradle user home by their invocation keys. Shared by all the builds of the machine,
+// hence an image is stored under a temporary name first, and it becomes visible by an atomic move. The stored images are
+// copies, never links, of the outputs, so that writing to an output cannot change them. The least recently used images
+// are evicted once the store exceeds its size.
+final class LocalImageStore {
+
+    static final String FOLDER = "caches/jlink-gradle-plugin/images";
+
+    private static final String STORE_LOCK = "store.lock";
+
+    private static final String TEMPORARY_INFIX = ".tmp-";
+
+    private static final Logger LOGGER = Logging.getLogger(LocalImageStore.class);
+
+    private LocalImageStore() {
+    }
+
+    // The stored image, or null if there is none
+    static Path find(Path store, String key) throws IOException {
+        Path image = store.resolve(key);
+        if (!Files.isDirectory(image)) {
+            return null;
+        }
+        // The last use, the least recently used images are evicted first
+        Files.setLastModifiedTime(image, FileTime.fromMillis(System.currentTimeMillis()));
+        return image;
+    }
+
+    // Copies the stored image into the output, false if it has been evicted by another build meanwhile
+    static boolean restore(Path image, Path output) throws IOException {
+        try {
+            ImageFiles.copy(image, output);
+            return true;
+        } catch (NoSuchFileException e) {
+            delete(output);
+            return false;
+        }
+    }
+
+    static void save(Path store, String key, Path image, long maxSize) throws IOException {
+        Files.createDirectories(store);
+        Path temporary = store.resolve(key + TEMPORARY_INFIX + UUID.randomUUID());
+        ImageFiles.copy(image, temporary);
+        try {
+            Files.move(temporary, store.resolve(key), StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | AtomicMoveNotSupportedException e) {
+            // Stored by another build meanwhile
+            delete(temporary);
+        } catch (IOException e) {
+            if (!Files.isDirectory(store.resolve(key))) {
+                throw e;
+            }
+            delete(temporary);
+        }
+        evict(store, key, maxSize);
+    }
+
+    // Evicts the least recently used images, except for the one just stored, until the store fits into its size, unless
+    // another build is evicting images. An image is moved away before it is deleted, so that a build restoring it meanwhile
+    // sees it vanish rather than copies a part of it.
+    private static void evict(Path store, String stored, long maxSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(store.resolve(STORE_LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                return;
+            }
+            if (lock == null) {
+                return;
+            }
+            try {
+                List<Path> images;
+                try (Stream<Path> files = Files.list(store)) {
+                    images = files.filter(file -> Files.isDirectory(file, LinkOption.NOFOLLOW_LINKS) && !file.getFileName().toString().contains(TEMPORARY_INFIX))
+                            .collect(Collectors.toList());
+                }
+                List<StoredImage> candidates = new ArrayList<>();
+                long total = 0;
+                for (Path image : images) {
+                    StoredImage candidate = new StoredImage(image);
+                    total += candidate.size;
+                    if (!image.getFileName().toString().equals(stored)) {
+                        candidates.add(candidate);
+                    }
+                }
+                candidates.sort(Comparator.comparing(image -> image.lastUse));
+                for (StoredImage candidate : candidates) {
+                    if (total <= maxSize) {
+                        break;
+                    }
+                    LOGGER.info("Evicting {} from the local image store, last used at {}", candidate.image.getFileName(), candidate.lastUse);
+                    Path evicted = store.resolve(candidate.image.getFileName() + TEMPORARY_INFIX + UUID.randomUUID());
+                    try {
+                        Files.move(candidate.image, evicted, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    }
+                    delete(evicted);
+                    total -= candidate.size;
+                }
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    private static void delete(Path folder) throws IOException {
+        if (!Files.exists(folder, LinkOption.NOFOLLOW_LINKS)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> walker = Files.walk(folder)) {
+            files = walker.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            // The legal notices of the images are read-only, which prevents deleting them on Windows
+            if (!Files.isSymbolicLink(file)) {
+                file.toFile().setWritable(true);
+            }
+            Files.delete(file);
+        }
+    }
+
+    private static final class StoredImage {
+
+        private final Path image;
+
+        private final FileTime lastUse;
+
+        private final long size;
+
+        private StoredImage(Path image) throws IOException {
+            this.image = image;
+            this.lastUse = Files.getLastModifiedTime(image);
+            try (Stream<Path> files = Files.walk(image)) {
+                this.size = files.filter(file -> Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)).mapToLong(file -> file.toFile().length()).sum();
+            }
+        }
+
+    }
+
+}
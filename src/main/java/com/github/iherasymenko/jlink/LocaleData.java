@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+// The locale data of jdk.localedata. The classes are resource bundles named after their locale, e.g.
+// sun/text/resources/cldr/ext/FormatData_sr_Latn_BA. The English locale data lives in java.base.
+final class LocaleData {
+
+    static final String MODULE = "jdk.localedata";
+
+    private LocaleData() {
+    }
+
+    // The language tag, e.g. sr-Latn-BA, of a locale data class given by its internal name, or null
+    static String localeOf(String className) {
+        if (!className.startsWith("sun/text/resources/") && !className.startsWith("sun/util/resources/")) {
+            return null;
+        }
+        String simpleName = className.substring(className.lastIndexOf('/') + 1);
+        int underscore = simpleName.indexOf('_');
+        if (underscore == -1 || simpleName.indexOf('$') != -1) {
+            return null;
+        }
+        String tag = simpleName.substring(underscore + 1).replace('_', '-');
+        // Skips the legacy variants, e.g. ja_JP_JP, which are not valid language tags
+        return Locale.forLanguageTag(tag).toLanguageTag().equalsIgnoreCase(tag) ? tag : null;
+    }
+
+    // The internal names of the classes of jdk.localedata mapped to their sizes, read from the jmods
+    // of the given JDK, or from the run-time image if there are no jmods (e.g. if the given JDK is a linked image)
+    static Map<String, Long> classes(Path jdkHome) throws IOException {
+        Map<String, Long> out = new TreeMap<>();
+        Path jmod = Jmods.of(jdkHome.resolve(Jmods.JMODS_FOLDER), MODULE);
+        if (Files.exists(jmod)) {
+            try (ZipFile zip = new ZipFile(jmod.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (name.startsWith("classes/") && name.endsWith(".class")) {
+                        out.put(name.substring("classes/".length(), name.length() - ".class".length()), entry.getSize());
+                    }
+                }
+            }
+            return out;
+        }
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", jdkHome.toString()))) {
+            Path module = jrt.getPath("/modules", MODULE);
+            if (!Files.exists(module)) {
+                return out;
+            }
+            try (Stream<Path> files = Files.walk(module)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    String name = module.relativize(file).toString();
+                    if (name.endsWith(".class")) {
+                        out.put(name.substring(0, name.length() - ".class".length()), Files.size(file));
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    static SortedSet<String> locales(Collection<String> classNames) {
+        SortedSet<String> out = new TreeSet<>();
+        for (String className : classNames) {
+            String locale = localeOf(className);
+            if (locale != null) {
+                out.add(locale);
+            }
+        }
+        return out;
+    }
+
+    // The --include-locales ranges for the wanted locales. jlink fails on the ranges that do not match any of the
+    // available locales, so such ranges fall back to their language (e.g. en-US to en), or are dropped
+    // if the locale data of the language is not in jdk.localedata at all.
+    static List<String> includeLocales(Collection<String> wanted, Set<String> available) {
+        List<String> availableTags = new ArrayList<>(available);
+        Set<String> out = new TreeSet<>();
+        for (String locale : wanted) {
+            String range = locale.replace('_', '-');
+            if (matches(range, availableTags)) {
+                out.add(range);
+                continue;
+            }
+            String language = range.split("-", 2)[0];
+            if (matches(language, availableTags)) {
+                out.add(language);
+            }
+        }
+        return new ArrayList<>(out);
+    }
+
+    private static boolean matches(String range, List<String> availableTags) {
+        try {
+            return !Locale.filterTags(Locale.LanguageRange.parse(range), availableTags).isEmpty();
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+}
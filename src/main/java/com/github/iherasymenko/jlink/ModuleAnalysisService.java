@@ -0,0 +1,80 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Reads and resolves the application module path once per build, no matter how many images are linked from it,
+// and reads the module catalogs of the JDKs, which are persisted in the Gradle user home
+public abstract class ModuleAnalysisService implements BuildService<ModuleAnalysisService.Parameters> {
+
+    static final String NAME = "jlinkModuleAnalysis";
+
+    static final String CATALOG_FOLDER = "caches/jlink-gradle-plugin/module-catalogs";
+
+    public interface Parameters extends BuildServiceParameters {
+
+        DirectoryProperty getCatalogDirectory();
+
+    }
+
+    private final Map<String, ModulePath> modulePaths = new ConcurrentHashMap<>();
+
+    private final Map<Path, JdkModuleCatalog> catalogs = new ConcurrentHashMap<>();
+
+    ModulePath analyze(Collection<File> modulePath, int release) throws IOException {
+        String fingerprint = Fingerprint.of(modulePath) + ";" + release;
+        try {
+            return modulePaths.computeIfAbsent(fingerprint, key -> {
+                Logging.getLogger(ModuleAnalysisService.class).info("Analyzing the module path of {} entries", modulePath.size());
+                try {
+                    return ModulePath.read(modulePath, release);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    JdkModuleCatalog catalog(Path jmodsFolder) throws IOException {
+        try {
+            return catalogs.computeIfAbsent(jmodsFolder.toAbsolutePath(), key -> {
+                Path catalogFile = getParameters().getCatalogDirectory().get().getAsFile().toPath().resolve(Fingerprint.sha256(key.toString()) + ".catalog");
+                try {
+                    return JdkModuleCatalog.of(key, catalogFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+}
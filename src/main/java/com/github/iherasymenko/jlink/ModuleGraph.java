@@ -0,0 +1,261 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+// Resolves the modules jlink is going to link, the way jlink resolves them, without running jlink
+final class ModuleGraph {
+
+    static final String ALL_MODULE_PATH = "ALL-MODULE-PATH";
+
+    private static final String MODULE_INFO = "module-info.class";
+
+    private final Map<String, ModuleInfo> observable;
+
+    private final Set<String> modulePathModules;
+
+    private ModuleGraph(Map<String, ModuleInfo> observable, Set<String> modulePathModules) {
+        this.observable = observable;
+        this.modulePathModules = modulePathModules;
+    }
+
+    // The modules of the JDK and of the module path. The module path entries that cannot be read are skipped,
+    // and the first entry of a module wins, as with ModuleFinder. The release is the feature version of the JDK.
+    static ModuleGraph of(Map<String, ModuleInfo> systemModules, Collection<File> modulePath, int release) throws IOException {
+        Map<String, ModuleInfo> observable = new TreeMap<>(systemModules);
+        Set<String> modulePathModules = new TreeSet<>();
+        for (File entry : modulePath) {
+            for (Path file : moduleFiles(entry.toPath())) {
+                ModuleInfo moduleInfo;
+                try {
+                    moduleInfo = moduleInfo(file, release);
+                } catch (IOException e) {
+                    continue;
+                }
+                if (moduleInfo != null && modulePathModules.add(moduleInfo.getName())) {
+                    observable.put(moduleInfo.getName(), moduleInfo);
+                }
+            }
+        }
+        return new ModuleGraph(observable, modulePathModules);
+    }
+
+    Map<String, ModuleInfo> getObservable() {
+        return observable;
+    }
+
+    // The modules of the jmods of the JDK, or of its run-time image if there are no jmods
+    static Map<String, ModuleInfo> systemModules(Path jdkHome) throws IOException {
+        Map<String, ModuleInfo> out = new TreeMap<>();
+        Path jmodsFolder = jdkHome.resolve(Jmods.JMODS_FOLDER);
+        if (Files.isDirectory(jmodsFolder)) {
+            for (Path jmod : Jmods.list(jmodsFolder)) {
+                ModuleInfo moduleInfo = Jmods.moduleInfo(jmod);
+                out.put(moduleInfo.getName(), moduleInfo);
+            }
+            return out;
+        }
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Collections.singletonMap("java.home", jdkHome.toString()));
+             Stream<Path> modules = Files.list(jrt.getPath("/modules"))) {
+            for (Path module : (Iterable<Path>) modules::iterator) {
+                ModuleInfo moduleInfo = ModuleInfo.read(Files.readAllBytes(module.resolve(MODULE_INFO)));
+                out.put(moduleInfo.getName(), moduleInfo);
+            }
+        }
+        return out;
+    }
+
+    // Roots as given to --add-modules, limitModules as given to --limit-modules
+    Set<String> resolve(Collection<String> roots, Collection<String> limitModules, boolean bindServices) {
+        Set<String> expandedRoots = expandRoots(roots);
+        return closure(candidates(expandedRoots, limitModules), expandedRoots, bindServices, new HashMap<>());
+    }
+
+    // Every module jlink links mapped to the shortest chain of modules that brings it in, starting with a root
+    Map<String, List<String>> resolvePaths(Collection<String> roots, Collection<String> limitModules, boolean bindServices) {
+        Set<String> expandedRoots = expandRoots(roots);
+        Map<String, String> parents = new HashMap<>();
+        Set<String> resolved = closure(candidates(expandedRoots, limitModules), expandedRoots, bindServices, parents);
+        Map<String, List<String>> out = new TreeMap<>();
+        for (String module : resolved) {
+            List<String> path = new ArrayList<>();
+            for (String step = module; step != null; step = parents.get(step)) {
+                path.add(0, step);
+            }
+            out.put(module, path);
+        }
+        return out;
+    }
+
+    // What would be linked if the module was not observable, hence what is linked only because of the module
+    Set<String> resolveWithout(String module, Collection<String> roots, Collection<String> limitModules, boolean bindServices) {
+        Set<String> expandedRoots = expandRoots(roots);
+        Map<String, ModuleInfo> candidates = new HashMap<>(candidates(expandedRoots, limitModules));
+        candidates.remove(module);
+        return closure(candidates, expandedRoots, bindServices, new HashMap<>());
+    }
+
+    private Set<String> expandRoots(Collection<String> roots) {
+        Set<String> expandedRoots = new TreeSet<>();
+        for (String root : roots) {
+            if (ALL_MODULE_PATH.equals(root)) {
+                expandedRoots.addAll(modulePathModules);
+            } else {
+                expandedRoots.add(root);
+            }
+        }
+        return expandedRoots;
+    }
+
+    private Map<String, ModuleInfo> candidates(Set<String> expandedRoots, Collection<String> limitModules) {
+        if (limitModules.isEmpty()) {
+            return observable;
+        }
+        // --limit-modules does not limit the modules given to --add-modules
+        Map<String, ModuleInfo> candidates = new HashMap<>();
+        Set<String> limited = closure(observable, limitModules, false, new HashMap<>());
+        limited.addAll(expandedRoots);
+        for (String module : limited) {
+            if (observable.containsKey(module)) {
+                candidates.put(module, observable.get(module));
+            }
+        }
+        return candidates;
+    }
+
+    // Breadth first, so the parent each module is reached from first is on a shortest chain from the roots
+    private static Set<String> closure(Map<String, ModuleInfo> candidates, Collection<String> roots, boolean bindServices, Map<String, String> parents) {
+        Set<String> out = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>(roots);
+        while (!pending.isEmpty()) {
+            String module = pending.pop();
+            ModuleInfo moduleInfo = candidates.get(module);
+            if (moduleInfo == null || !out.add(module)) {
+                continue;
+            }
+            for (String required : moduleInfo.getRequires()) {
+                reach(pending, parents, roots, module, required);
+            }
+            if (bindServices) {
+                for (String service : moduleInfo.getUses()) {
+                    for (ModuleInfo provider : candidates.values()) {
+                        if (provider.getProvides().containsKey(service)) {
+                            reach(pending, parents, roots, module, provider.getName());
+                        }
+                    }
+                }
+            }
+        }
+        return out;
+    }
+
+    private static void reach(Deque<String> pending, Map<String, String> parents, Collection<String> roots, String from, String module) {
+        if (!roots.contains(module)) {
+            parents.putIfAbsent(module, from);
+        }
+        pending.add(module);
+    }
+
+    // The modules of a module path entry, the way jlink scans the module path: the entry itself, or, if it is a directory
+    // without module-info.class, the jars, the jmods and the exploded modules in it
+    static List<Path> moduleFiles(Path entry) throws IOException {
+        if (!Files.isDirectory(entry) || Files.exists(entry.resolve(MODULE_INFO))) {
+            return List.of(entry);
+        }
+        try (Stream<Path> children = Files.list(entry)) {
+            return children.filter(child -> {
+                String name = child.getFileName().toString();
+                if (name.startsWith(".")) {
+                    return false;
+                }
+                return Files.isDirectory(child)
+                        ? Files.exists(child.resolve(MODULE_INFO))
+                        : name.endsWith(".jar") || name.endsWith(".jmod");
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    // module-info.class of a modular jar, of a jmod or of an exploded module, or null if the entry has none. For a multi-release jar, it is the one of the newest release up to
+    // the given one, i.e. the feature version of the JDK the image is linked from, the way jlink picks it.
+    static ModuleInfo moduleInfo(Path entry, int release) throws IOException {
+        if (Files.isDirectory(entry)) {
+            Path moduleInfo = entry.resolve(MODULE_INFO);
+            return Files.exists(moduleInfo) ? ModuleInfo.read(Files.readAllBytes(moduleInfo)) : null;
+        }
+        if (Files.isRegularFile(entry) && entry.getFileName().toString().endsWith(".jmod")) {
+            return Jmods.moduleInfo(entry);
+        }
+        if (!Files.isRegularFile(entry) || !entry.getFileName().toString().endsWith(".jar")) {
+            return null;
+        }
+        // The base entries, JarFile would cap the versioned ones at the release of the JDK Gradle runs on
+        try (JarFile jar = new JarFile(entry.toFile(), false)) {
+            ZipEntry moduleInfo = jar.getEntry(MODULE_INFO);
+            Manifest manifest = jar.getManifest();
+            boolean multiRelease = manifest != null && Boolean.parseBoolean(manifest.getMainAttributes().getValue(Attributes.Name.MULTI_RELEASE));
+            int newestRelease = 0;
+            Enumeration<? extends ZipEntry> entries = jar.entries();
+            while (multiRelease && entries.hasMoreElements()) {
+                ZipEntry candidate = entries.nextElement();
+                List<String> path = List.of(candidate.getName().split("/"));
+                if (path.size() == 4 && path.get(0).equals("META-INF") && path.get(1).equals("versions") && path.get(3).equals(MODULE_INFO)) {
+                    try {
+                        int version = Integer.parseInt(path.get(2));
+                        if (version > newestRelease && (version <= release || release < 0)) {
+                            newestRelease = version;
+                            moduleInfo = candidate;
+                        }
+                    } catch (NumberFormatException e) {
+                        // Not a versioned entry
+                    }
+                }
+            }
+            if (moduleInfo == null) {
+                return null;
+            }
+            try (InputStream in = jar.getInputStream(moduleInfo)) {
+                return ModuleInfo.read(in.readAllBytes());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// A minimal module-info.class reader. java.lang.module.ModuleDescriptor cannot be used as it rejects
+// class files of a newer release than the JDK Gradle runs on, and cross-target JDKs are often newer.
+final class ModuleInfo {
+
+    private static final int ACC_STATIC_PHASE = 0x0040;
+
+    private final String name;
+    private final List<String> requires;
+    private final List<String> uses;
+    private final Map<String, List<String>> provides;
+    private final String target;
+
+    private ModuleInfo(String name, List<String> requires, List<String> uses, Map<String, List<String>> provides, String target) {
+        this.name = name;
+        this.requires = requires;
+        this.uses = uses;
+        this.provides = provides;
+        this.target = target;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Module names, including java.base. The 'requires static' ones are skipped as they are not resolved by default.
+    List<String> getRequires() {
+        return requires;
+    }
+
+    // Binary names of the service interfaces
+    List<String> getUses() {
+        return uses;
+    }
+
+    // Binary names of the service interfaces mapped to the binary names of their providers
+    Map<String, List<String>> getProvides() {
+        return provides;
+    }
+
+    // The ModuleTarget attribute, e.g. linux-amd64, or null if the module is platform independent
+    String getTarget() {
+        return target;
+    }
+
+    static ModuleInfo read(byte[] moduleInfo) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(moduleInfo));
+        if (in.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file");
+        }
+        in.readUnsignedShort(); // minor_version
+        in.readUnsignedShort(); // major_version
+        int constantPoolCount = in.readUnsignedShort();
+        String[] utf8 = new String[constantPoolCount];
+        int[] names = new int[constantPoolCount];
+        for (int i = 1; i < constantPoolCount; i++) {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case 1: // Utf8
+                    utf8[i] = in.readUTF();
+                    break;
+                case 7: // Class
+                case 19: // Module
+                case 20: // Package
+                    names[i] = in.readUnsignedShort();
+                    break;
+                case 8: // String
+                case 16: // MethodType
+                    in.skipBytes(2);
+                    break;
+                case 15: // MethodHandle
+                    in.skipBytes(3);
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.skipBytes(4);
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    in.skipBytes(8);
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unexpected constant pool tag " + tag);
+            }
+        }
+        in.skipBytes(6); // access_flags, this_class, super_class
+        in.skipBytes(2 * in.readUnsignedShort()); // interfaces
+        for (int members = 0; members < 2; members++) { // fields, methods
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                in.skipBytes(6);
+                skipAttributes(in);
+            }
+        }
+        String name = null;
+        List<String> requires = new ArrayList<>();
+        List<String> uses = new ArrayList<>();
+        Map<String, List<String>> provides = new LinkedHashMap<>();
+        String target = null;
+        int attributesCount = in.readUnsignedShort();
+        for (int i = 0; i < attributesCount; i++) {
+            String attribute = utf8[in.readUnsignedShort()];
+            int length = in.readInt();
+            if ("Module".equals(attribute)) {
+                name = utf8[names[in.readUnsignedShort()]];
+                in.skipBytes(4); // module_flags, module_version_index
+                int requiresCount = in.readUnsignedShort();
+                for (int j = 0; j < requiresCount; j++) {
+                    String module = utf8[names[in.readUnsignedShort()]];
+                    if ((in.readUnsignedShort() & ACC_STATIC_PHASE) == 0) {
+                        requires.add(module);
+                    }
+                    in.skipBytes(2); // requires_version_index
+                }
+                for (int exportsOrOpens = 0; exportsOrOpens < 2; exportsOrOpens++) {
+                    int count = in.readUnsignedShort();
+                    for (int j = 0; j < count; j++) {
+                        in.skipBytes(4); // package index, flags
+                        in.skipBytes(2 * in.readUnsignedShort());
+                    }
+                }
+                int usesCount = in.readUnsignedShort();
+                for (int j = 0; j < usesCount; j++) {
+                    uses.add(binaryName(utf8[names[in.readUnsignedShort()]]));
+                }
+                int providesCount = in.readUnsignedShort();
+                for (int j = 0; j < providesCount; j++) {
+                    String service = binaryName(utf8[names[in.readUnsignedShort()]]);
+                    int withCount = in.readUnsignedShort();
+                    List<String> providers = new ArrayList<>();
+                    for (int k = 0; k < withCount; k++) {
+                        providers.add(binaryName(utf8[names[in.readUnsignedShort()]]));
+                    }
+                    provides.put(service, Collections.unmodifiableList(providers));
+                }
+            } else if ("ModuleTarget".equals(attribute)) {
+                int index = in.readUnsignedShort();
+                target = index == 0 ? null : utf8[index];
+            } else {
+                in.skipBytes(length);
+            }
+        }
+        if (name == null) {
+            throw new IOException("Not a module-info class file");
+        }
+        return new ModuleInfo(name, Collections.unmodifiableList(requires), Collections.unmodifiableList(uses), Collections.unmodifiableMap(provides), target);
+    }
+
+    private static String binaryName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    private static void skipAttributes(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.skipBytes(2);
+            in.skipBytes(in.readInt());
+        }
+    }
+
+}
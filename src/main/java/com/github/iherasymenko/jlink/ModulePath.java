@@ -0,0 +1,178 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// The modules of the application module path, and what the images need of them. The JDK modules are outside of its scope,
+// so it is the same for every image of the application linked from a JDK of the same release.
+final class ModulePath {
+
+    private static final Logger LOGGER = Logging.getLogger(ModulePath.class);
+
+    private final Map<String, File> entries;
+
+    private final Map<String, ModuleInfo> modules;
+
+    private final List<File> unreadable;
+
+    private final Map<String, Resolution> resolutions = new ConcurrentHashMap<>();
+
+    private ModulePath(Map<String, File> entries, Map<String, ModuleInfo> modules, List<File> unreadable) {
+        this.entries = entries;
+        this.modules = modules;
+        this.unreadable = unreadable;
+    }
+
+    // The release is the feature version of the JDK the images are linked from, see ModuleGraph.moduleInfo. A directory of modules
+    // is expanded into its modules, while an entry whose module cannot be read, e.g. an automatic module, is passed to jlink as is.
+    static ModulePath read(Collection<File> modulePath, int release) throws IOException {
+        Map<String, File> entries = new TreeMap<>();
+        Map<String, ModuleInfo> modules = new TreeMap<>();
+        List<File> unreadable = new ArrayList<>();
+        for (File entry : modulePath) {
+            for (Path file : ModuleGraph.moduleFiles(entry.toPath())) {
+                ModuleInfo moduleInfo;
+                try {
+                    moduleInfo = ModuleGraph.moduleInfo(file, release);
+                } catch (IOException e) {
+                    LOGGER.info("Cannot read the module of {}: {}", file, e.getMessage());
+                    moduleInfo = null;
+                }
+                if (moduleInfo == null) {
+                    unreadable.add(file.toFile());
+                    continue;
+                }
+                File first = entries.putIfAbsent(moduleInfo.getName(), file.toFile());
+                if (first != null) {
+                    // The first entry wins, as with ModuleFinder, and only that one is passed to jlink
+                    LOGGER.warn("Module {} is found in both {} and {}, the latter is ignored", moduleInfo.getName(), first, file);
+                    continue;
+                }
+                modules.put(moduleInfo.getName(), moduleInfo);
+            }
+        }
+        return new ModulePath(entries, modules, unreadable);
+    }
+
+    // The module path entry of the module, or null if it is not a module of the module path
+    File getEntry(String module) {
+        return entries.get(module);
+    }
+
+    // Roots as given to --add-modules
+    Resolution resolve(Collection<String> roots, boolean bindServices) {
+        return resolutions.computeIfAbsent(String.join(",", new TreeSet<>(roots)) + ";" + bindServices, key -> doResolve(roots, bindServices));
+    }
+
+    private Resolution doResolve(Collection<String> roots, boolean bindServices) {
+        SortedMap<String, SortedSet<String>> externalRequires = new TreeMap<>();
+        Set<String> resolved = new TreeSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        for (String root : roots) {
+            if (ModuleGraph.ALL_MODULE_PATH.equals(root)) {
+                pending.addAll(modules.keySet());
+            } else if (modules.containsKey(root)) {
+                pending.add(root);
+            } else {
+                externalRequires.computeIfAbsent(root, it -> new TreeSet<>()).add("--add-modules");
+            }
+        }
+        if (bindServices) {
+            // The services used by the JDK modules are not known here, so every provider may be bound
+            for (ModuleInfo moduleInfo : modules.values()) {
+                if (!moduleInfo.getProvides().isEmpty()) {
+                    pending.add(moduleInfo.getName());
+                }
+            }
+        }
+        while (!pending.isEmpty()) {
+            String module = pending.pop();
+            if (!resolved.add(module)) {
+                continue;
+            }
+            for (String required : modules.get(module).getRequires()) {
+                if (modules.containsKey(required)) {
+                    pending.add(required);
+                } else {
+                    externalRequires.computeIfAbsent(required, it -> new TreeSet<>()).add(module);
+                }
+            }
+        }
+        List<File> usedEntries = new ArrayList<>(unreadable);
+        for (String module : resolved) {
+            usedEntries.add(entries.get(module));
+        }
+        return new Resolution(usedEntries, externalRequires, !unreadable.isEmpty());
+    }
+
+    static final class Resolution {
+
+        private final List<File> entries;
+
+        private final SortedMap<String, SortedSet<String>> externalRequires;
+
+        private final boolean partial;
+
+        private Resolution(List<File> entries, SortedMap<String, SortedSet<String>> externalRequires, boolean partial) {
+            this.entries = entries;
+            this.externalRequires = externalRequires;
+            this.partial = partial;
+        }
+
+        // The module path entries of the resolved modules, and the ones that cannot be read
+        List<File> getEntries() {
+            return entries;
+        }
+
+        // The modules that are not on the module path, i.e. the ones expected to be found in the JDK, mapped to the modules requiring them
+        SortedMap<String, SortedSet<String>> getExternalRequires() {
+            return externalRequires;
+        }
+
+        // The modules of the entries that cannot be read are unknown, so jlink is left to tell whether anything is missing
+        void validate(Set<String> systemModules) {
+            if (partial) {
+                return;
+            }
+            for (Map.Entry<String, SortedSet<String>> entry : externalRequires.entrySet()) {
+                if (!systemModules.contains(entry.getKey())) {
+                    throw new GradleException("Module " + entry.getKey() + " not found, required by " + String.join(", ", entry.getValue()));
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads the libraries a native library is linked against (ELF DT_NEEDED, Mach-O LC_LOAD_DYLIB, PE imports).
+// These are loaded by the operating system rather than by the JVM, hence never reported by -Xlog:library.
+final class NativeLibraries {
+
+    private static final int DT_NEEDED = 1;
+
+    private static final int SHT_DYNAMIC = 6;
+
+    private static final int LC_LOAD_DYLIB = 0xC;
+
+    private static final int LC_LOAD_WEAK_DYLIB = 0x80000018;
+
+    private static final int LC_REEXPORT_DYLIB = 0x8000001F;
+
+    private NativeLibraries() {
+    }
+
+    // File names, e.g. libnet.so or net.dll, of the libraries the given one depends on
+    static List<String> dependencies(byte[] library) {
+        ByteBuffer buffer = ByteBuffer.wrap(library).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (library.length > 4 && library[0] == 0x7F && library[1] == 'E' && library[2] == 'L' && library[3] == 'F') {
+                return elf(buffer);
+            }
+            if (library.length > 4 && buffer.getInt(0) == 0xFEEDFACF) {
+                return machO(buffer, 32);
+            }
+            if (library.length > 4 && buffer.getInt(0) == 0xFEEDFACE) {
+                return machO(buffer, 28);
+            }
+            if (library.length > 0x40 && library[0] == 'M' && library[1] == 'Z') {
+                return pe(buffer);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated or unusual binary, nothing can be told about its dependencies
+        }
+        return List.of();
+    }
+
+    private static List<String> elf(ByteBuffer buffer) {
+        boolean is64 = buffer.get(4) == 2;
+        if (buffer.get(5) == 2) {
+            buffer.order(ByteOrder.BIG_ENDIAN);
+        }
+        long sectionHeadersOffset = is64 ? buffer.getLong(0x28) : Integer.toUnsignedLong(buffer.getInt(0x20));
+        int sectionHeaderSize = Short.toUnsignedInt(buffer.getShort(is64 ? 0x3A : 0x2E));
+        int sectionHeadersCount = Short.toUnsignedInt(buffer.getShort(is64 ? 0x3C : 0x30));
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < sectionHeadersCount; i++) {
+            int header = Math.toIntExact(sectionHeadersOffset + (long) i * sectionHeaderSize);
+            if (buffer.getInt(header + 4) != SHT_DYNAMIC) {
+                continue;
+            }
+            int offset = Math.toIntExact(is64 ? buffer.getLong(header + 0x18) : Integer.toUnsignedLong(buffer.getInt(header + 0x10)));
+            int size = Math.toIntExact(is64 ? buffer.getLong(header + 0x20) : Integer.toUnsignedLong(buffer.getInt(header + 0x14)));
+            int link = buffer.getInt(header + (is64 ? 0x28 : 0x18));
+            int stringTableHeader = Math.toIntExact(sectionHeadersOffset + (long) link * sectionHeaderSize);
+            int stringTable = Math.toIntExact(is64 ? buffer.getLong(stringTableHeader + 0x18) : Integer.toUnsignedLong(buffer.getInt(stringTableHeader + 0x10)));
+            int entrySize = is64 ? 16 : 8;
+            for (int entry = offset; entry + entrySize <= offset + size; entry += entrySize) {
+                long tag = is64 ? buffer.getLong(entry) : buffer.getInt(entry);
+                if (tag == 0) {
+                    break;
+                }
+                if (tag == DT_NEEDED) {
+                    long value = is64 ? buffer.getLong(entry + 8) : Integer.toUnsignedLong(buffer.getInt(entry + 4));
+                    out.add(string(buffer, Math.toIntExact(stringTable + value)));
+                }
+            }
+        }
+        return out;
+    }
+
+    private static List<String> machO(ByteBuffer buffer, int headerSize) {
+        int commandsCount = buffer.getInt(16);
+        List<String> out = new ArrayList<>();
+        int command = headerSize;
+        for (int i = 0; i < commandsCount; i++) {
+            int type = buffer.getInt(command);
+            int size = buffer.getInt(command + 4);
+            if (type == LC_LOAD_DYLIB || type == LC_LOAD_WEAK_DYLIB || type == LC_REEXPORT_DYLIB) {
+                String name = string(buffer, command + buffer.getInt(command + 8));
+                out.add(name.substring(name.lastIndexOf('/') + 1));
+            }
+            command += size;
+        }
+        return out;
+    }
+
+    private static List<String> pe(ByteBuffer buffer) {
+        int peHeader = buffer.getInt(0x3C);
+        if (buffer.getInt(peHeader) != 0x00004550) { // PE\0\0
+            return List.of();
+        }
+        int coffHeader = peHeader + 4;
+        int sectionsCount = Short.toUnsignedInt(buffer.getShort(coffHeader + 2));
+        int optionalHeaderSize = Short.toUnsignedInt(buffer.getShort(coffHeader + 16));
+        int optionalHeader = coffHeader + 20;
+        boolean is64 = Short.toUnsignedInt(buffer.getShort(optionalHeader)) == 0x20B;
+        int dataDirectories = optionalHeader + (is64 ? 112 : 96);
+        int importTable = buffer.getInt(dataDirectories + 8);
+        int sections = optionalHeader + optionalHeaderSize;
+        List<String> out = new ArrayList<>();
+        if (importTable == 0) {
+            return out;
+        }
+        for (int descriptor = offsetOf(buffer, sections, sectionsCount, importTable); ; descriptor += 20) {
+            int name = buffer.getInt(descriptor + 12);
+            if (name == 0) {
+                break;
+            }
+            out.add(string(buffer, offsetOf(buffer, sections, sectionsCount, name)));
+        }
+        return out;
+    }
+
+    private static int offsetOf(ByteBuffer buffer, int sections, int sectionsCount, int rva) {
+        for (int i = 0; i < sectionsCount; i++) {
+            int section = sections + i * 40;
+            int virtualAddress = buffer.getInt(section + 12);
+            int rawDataSize = buffer.getInt(section + 16);
+            if (rva >= virtualAddress && rva < virtualAddress + Math.max(rawDataSize, buffer.getInt(section + 8))) {
+                return rva - virtualAddress + buffer.getInt(section + 20);
+            }
+        }
+        throw new IndexOutOfBoundsException("RVA " + rva + " is not mapped to any section");
+    }
+
+    private static String string(ByteBuffer buffer, int offset) {
+        int end = offset;
+        while (buffer.get(end) != 0) {
+            end++;
+        }
+        return new String(buffer.array(), offset, end - offset, StandardCharsets.UTF_8);
+    }
+
+}
@@ -15,6 +15,8 @@
  */
 package com.github.iherasymenko.jlink;
 
+import java.util.Locale;
+
 final class Os {
 
     static String javaBinaryName() {
@@ -25,4 +27,47 @@ final class Os {
         return System.getProperty("os.name").startsWith("Windows") ? "jlink.exe" : "jlink";
     }
 
+    static String normalizeName(String osName) {
+        String name = osName == null ? "" : osName.toLowerCase(Locale.ROOT);
+        if (name.startsWith("windows")) {
+            return "windows";
+        }
+        if (name.startsWith("mac") || name.startsWith("darwin")) {
+            return "macos";
+        }
+        return name;
+    }
+
+    static String normalizeArch(String osArch) {
+        String arch = osArch == null ? "" : osArch.toLowerCase(Locale.ROOT);
+        switch (arch) {
+            case "amd64":
+            case "x64":
+                return "x86_64";
+            case "arm64":
+                return "aarch64";
+            default:
+                return arch;
+        }
+    }
+
+    static String libraryBaseName(String fileName) {
+        String name = fileName;
+        int versioned = name.indexOf(".so.");
+        if (versioned != -1) {
+            name = name.substring(0, versioned + ".so".length());
+        }
+        String baseName;
+        if (name.endsWith(".so")) {
+            baseName = name.substring(0, name.length() - ".so".length());
+        } else if (name.endsWith(".dylib")) {
+            baseName = name.substring(0, name.length() - ".dylib".length());
+        } else if (name.endsWith(".dll")) {
+            return name.substring(0, name.length() - ".dll".length());
+        } else {
+            return null;
+        }
+        return baseName.startsWith("lib") ? baseName.substring("lib".length()) : baseName;
+    }
+
 }
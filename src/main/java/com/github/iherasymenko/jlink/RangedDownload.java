@@ -0,0 +1,260 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Downloads a file over several connections, each fetching byte ranges of the file straight into their offsets of a partial file.
+// A dropped connection resumes its range where it stopped, and the ranges downloaded before an interrupted build are kept.
+final class RangedDownload {
+
+    static final int RANGE_SIZE = 8 * 1024 * 1024;
+
+    private static final int ATTEMPTS = 5;
+
+    private static final String PART_SUFFIX = ".part";
+
+    // The URL, the length and the validator of the file, and the ranges of the partial file downloaded so far
+    private static final String STATE_SUFFIX = ".ranges";
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private static final Logger LOGGER = Logging.getLogger(RangedDownload.class);
+
+    private final URI uri;
+
+    private final Path target;
+
+    private final HttpClient client;
+
+    private final Path part;
+
+    private final Path stateFile;
+
+    private final Properties state = new Properties();
+
+    private final TreeSet<Integer> downloaded = new TreeSet<>();
+
+    private RangedDownload(URI uri, Path target) {
+        this.uri = uri;
+        this.target = target;
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .proxy(ProxySelector.getDefault())
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        this.part = target.resolveSibling(target.getFileName() + PART_SUFFIX);
+        this.stateFile = target.resolveSibling(target.getFileName() + STATE_SUFFIX);
+    }
+
+    static void download(URI uri, Path target, int connections) throws IOException {
+        try {
+            new RangedDownload(uri, target).download(connections);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading " + uri);
+        }
+    }
+
+    private void download(int connections) throws IOException, InterruptedException {
+        Files.createDirectories(target.getParent());
+        HttpResponse<InputStream> probe = client.send(request("bytes=0-0", null), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = probe.body()) {
+            if (probe.statusCode() == 200) {
+                LOGGER.lifecycle("Downloading {} in a single stream, as the server does not support byte ranges", uri);
+                Files.copy(body, part, StandardCopyOption.REPLACE_EXISTING);
+                complete();
+                return;
+            }
+            if (probe.statusCode() != 206) {
+                throw new IOException("Cannot download " + uri + ": HTTP " + probe.statusCode());
+            }
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        long length = Long.parseLong(contentRange(probe).group(3));
+        String validator = probe.headers().firstValue("ETag")
+                .orElse(probe.headers().firstValue("Last-Modified").orElse(""));
+        int ranges = (int) ((length + RANGE_SIZE - 1) / RANGE_SIZE);
+        restoreState(length, validator);
+        List<Integer> pending = new ArrayList<>();
+        for (int range = 0; range < ranges; range++) {
+            if (!downloaded.contains(range)) {
+                pending.add(range);
+            }
+        }
+        if (downloaded.isEmpty()) {
+            LOGGER.lifecycle("Downloading {} ({} bytes) in {} ranges over {} connections", uri, length, ranges, Math.min(connections, ranges));
+        } else {
+            LOGGER.lifecycle("Resuming the download of {}: {} of {} ranges are downloaded already", uri, downloaded.size(), ranges);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(connections, pending.size())), runnable -> {
+            Thread thread = new Thread(runnable, "jlink JDK download");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int range : pending) {
+                long start = (long) range * RANGE_SIZE;
+                long end = Math.min(length, start + RANGE_SIZE) - 1;
+                futures.add(executor.submit(() -> {
+                    downloadRange(channel, start, end, validator);
+                    markDownloaded(range);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException("Cannot download " + uri, cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        complete();
+    }
+
+    private void downloadRange(FileChannel channel, long start, long end, String validator) throws IOException, InterruptedException {
+        long position = start;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                HttpResponse<InputStream> response = client.send(request("bytes=" + position + "-" + end, validator), HttpResponse.BodyHandlers.ofInputStream());
+                try (InputStream body = response.body()) {
+                    if (response.statusCode() != 206 || Long.parseLong(contentRange(response).group(1)) != position) {
+                        // If-Range does not match, so the file is not the one the other ranges are of
+                        throw new IllegalStateException(uri + " changed while downloading it, HTTP " + response.statusCode());
+                    }
+                    byte[] buffer = new byte[64 * 1024];
+                    for (int read = body.read(buffer); read != -1 && position <= end; read = body.read(buffer)) {
+                        ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, (int) Math.min(read, end - position + 1));
+                        while (bytes.hasRemaining()) {
+                            position += channel.write(bytes, position);
+                        }
+                    }
+                }
+                if (position <= end) {
+                    throw new IOException("The connection is closed at " + position + " of the range " + start + "-" + end);
+                }
+                return;
+            } catch (IOException e) {
+                if (attempt == ATTEMPTS) {
+                    throw e;
+                }
+                LOGGER.info("Resuming the range {}-{} of {} at {}: {}", start, end, uri, position, e.getMessage());
+                Thread.sleep(500L * attempt);
+            }
+        }
+    }
+
+    private HttpRequest request(String range, String validator) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).header("Range", range).timeout(Duration.ofMinutes(5));
+        if (validator != null && !validator.isEmpty()) {
+            request.header("If-Range", validator);
+        }
+        return request.build();
+    }
+
+    private Matcher contentRange(HttpResponse<?> response) throws IOException {
+        String contentRange = response.headers().firstValue("Content-Range").orElse("");
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange);
+        if (!matcher.matches()) {
+            throw new IOException("Unexpected Content-Range of " + uri + ": " + contentRange);
+        }
+        return matcher;
+    }
+
+    // Keeps the ranges downloaded before if the partial file is of the same file
+    private void restoreState(long length, String validator) throws IOException {
+        if (Files.isRegularFile(stateFile) && Files.isRegularFile(part)) {
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                state.load(in);
+            }
+            if (uri.toString().equals(state.getProperty("url")) && Long.toString(length).equals(state.getProperty("length"))
+                    && validator.equals(state.getProperty("validator")) && !validator.isEmpty() && Files.size(part) == length) {
+                for (String range : state.getProperty("downloaded", "").split(",")) {
+                    if (!range.isEmpty()) {
+                        downloaded.add(Integer.parseInt(range));
+                    }
+                }
+                return;
+            }
+        }
+        state.clear();
+        state.setProperty("url", uri.toString());
+        state.setProperty("length", Long.toString(length));
+        state.setProperty("validator", validator);
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Every range writes at its offset of the file, so there is nothing to reassemble
+            channel.write(ByteBuffer.allocate(1), length - 1);
+        }
+        saveState();
+    }
+
+    private synchronized void markDownloaded(int range) throws IOException {
+        downloaded.add(range);
+        saveState();
+    }
+
+    private void saveState() throws IOException {
+        StringBuilder ranges = new StringBuilder();
+        for (int range : downloaded) {
+            ranges.append(ranges.length() == 0 ? "" : ",").append(range);
+        }
+        state.setProperty("downloaded", ranges.toString());
+        Path temporary = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temporary)) {
+            state.store(out, null);
+        }
+        Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void complete() throws IOException {
+        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(stateFile);
+    }
+
+}
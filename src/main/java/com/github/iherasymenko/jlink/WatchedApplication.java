@@ -0,0 +1,52 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink;
+
+import org.gradle.deployment.internal.Deployment;
+import org.gradle.deployment.internal.DeploymentHandle;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// The application started by 'imageRun --watch' in a continuous build. Unlike a build service, which is closed
+// after every build cycle, a deployment lives as long as the continuous build, so Gradle stops the application
+// when the continuous build ends, e.g. on Ctrl-C or Ctrl-D
+public class WatchedApplication implements DeploymentHandle {
+
+    private final AtomicReference<ProcessHandle> process = new AtomicReference<>();
+
+    void watch(ProcessHandle process) {
+        this.process.set(process);
+    }
+
+    @Override
+    public boolean isRunning() {
+        ProcessHandle current = process.get();
+        return current != null && current.isAlive();
+    }
+
+    @Override
+    public void start(Deployment deployment) {
+    }
+
+    @Override
+    public void stop() {
+        ProcessHandle current = process.getAndSet(null);
+        if (current != null) {
+            JlinkRunImageTask.stop(current);
+        }
+    }
+
+}
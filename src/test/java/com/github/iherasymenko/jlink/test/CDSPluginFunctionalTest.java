@@ -19,6 +19,8 @@ import org.assertj.core.api.InstanceOfAssertFactories;
 import org.gradle.testkit.runner.BuildResult;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
 
 import java.io.IOException;
 
@@ -89,4 +91,165 @@ class CDSPluginFunctionalTest extends AbstractTestBase {
                 .contains("Created CDS archive successfully");
     }
 
+    @Test
+    @EnabledOnOs(value = OS.LINUX, architectures = "amd64", disabledReason = "The cross-target JDK has to match the build machine")
+    void can_generate_cds_archive_for_cross_target_image_of_host_platform() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'java'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                jlinkApplication {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                    generateCdsArchive = true
+                    includeTrainedCdsClasses = true
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                import java.sql.DriverManager;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                        System.out.println("Drivers: " + DriverManager.drivers().count());
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.sql;
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageLinuxX64").build();
+
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/server/classes.jsa")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/server/classes_nocoops.jsa")).exists();
+        assertThat(build.projectDir.resolve("build/jlink/training/cds-classlist.txt"))
+                .content()
+                .contains("java/sql/DriverManager")
+                .doesNotContain("com/example/demo/DemoApplication");
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Drivers: ")
+                .containsPattern("Archiving \\d+ entries of the default class list and [1-9]\\d* more recorded during the training runs");
+    }
+
+    @Test
+    @EnabledOnOs(value = OS.LINUX, architectures = "amd64", disabledReason = "The cross-target JDK has to differ from the build machine")
+    void skips_cds_archive_for_cross_target_image_of_another_platform() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'java'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                jlinkApplication {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                    generateCdsArchive = true
+                }
+
+                jlinkImages {
+                	windowsX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-win_x64.zip'
+                	}
+                }
+                """;
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                import java.sql.DriverManager;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                        System.out.println("Drivers: " + DriverManager.drivers().count());
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.sql;
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageWindowsX64").build();
+
+        assertThat(build.projectDir.resolve("build/images/windowsX64/bin/server/classes.jsa")).doesNotExist();
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("CDS archive is not generated for :imageWindowsX64: the image is built for windows-amd64");
+    }
+
 }
@@ -117,6 +117,96 @@ class CrossTargetJdkImageFunctionalTest extends AbstractTestBase {
         assertThat(build.projectDir.resolve("build/images/macOsX64/lib/libjava.dylib")).exists();
     }
 
+    @Test
+    public void can_create_images_of_different_jdk_versions() throws IOException {
+        build.settingsFile = """
+                plugins {
+                    id 'org.gradle.toolchains.foojay-resolver-convention' version '0.9.0'
+                }
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                tasks.named('compileJava') {
+                	options.release = 17
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkImages {
+                	linuxX64Jdk17 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu17.46.19-ca-jdk17.0.9-linux_x64.zip'
+                	}
+                	linuxX64Jdk21 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+
+                }
+                """;
+
+        BuildResult buildResult = build.runner("assemble", "--parallel")
+                .build();
+
+        assertThat(buildResult.task(":imageLinuxX64Jdk17"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(buildResult.task(":imageLinuxX64Jdk21"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.SUCCESS);
+
+        assertThat(build.projectDir.resolve("build/images/linuxX64Jdk17/release")).content().contains("JAVA_VERSION=\"17.0.9\"");
+        assertThat(build.projectDir.resolve("build/images/linuxX64Jdk21/release")).content().contains("JAVA_VERSION=\"21.0.1\"");
+    }
+
     @Test
     public void can_not_create_image_with_a_cross_target_jdk_when_no_jmods_found() throws IOException {
         build.settingsFile = """
@@ -193,4 +283,89 @@ class CrossTargetJdkImageFunctionalTest extends AbstractTestBase {
                 .contains("jmods directory is not found. Cross-linking is not available with the given distribution. See https://openjdk.org/jeps/493 for details.");
     }
 
+    @Test
+    public void can_not_create_image_with_a_toolchain_of_another_major_version() throws IOException {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                tasks.named('compileJava') {
+                	options.release = 17
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkImages {
+                	linuxX64Jdk17 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu17.46.19-ca-jdk17.0.9-linux_x64.zip'
+                	}
+                }
+
+                tasks.named('imageLinuxX64Jdk17') {
+                	javaLauncher = javaToolchains.launcherFor(java.toolchain)
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageLinuxX64Jdk17")
+                .buildAndFail();
+
+        assertThat(buildResult.task(":imageLinuxX64Jdk17"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.FAILED);
+
+        assertThat(buildResult.getOutput())
+                .contains("zulu17.46.19-ca-jdk17.0.9-linux_x64.zip is a JDK 17, but the toolchain of :imageLinuxX64Jdk17 is a JDK 21")
+                .doesNotContain("Extracting zulu17.46.19-ca-jdk17.0.9-linux_x64.zip");
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class DeduplicateImagesFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                	linuxX64Copy {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+    }
+
+    @Test
+    void links_identical_images_once() throws IOException {
+        BuildResult buildResult = build.runner("imageLinuxX64", "imageLinuxX64Copy").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .containsPattern(":imageLinuxX64(Copy)? is the same as .*, reusing it");
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/modules")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64Copy/lib/modules")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64Copy/lib/libjava.so")).exists();
+    }
+
+    @Test
+    void does_not_wait_for_identical_images_with_a_single_worker() throws IOException {
+        BuildResult buildResult = build.runner("imageLinuxX64", "imageLinuxX64Copy", "--parallel", "--max-workers=1").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .containsPattern(":imageLinuxX64(Copy)? is the same as .*, reusing it");
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/modules")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64Copy/lib/modules")).exists();
+    }
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class DevRuntimeFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+    }
+
+    @Test
+    void assembles_a_dev_runtime_without_jlink() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	devRuntime = true
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageRun").build();
+
+        assertThat(buildResult.getOutput())
+                .contains("Assembled :image as a dev runtime of")
+                .contains("Hello, world!");
+        assertThat(build.projectDir.resolve("build/images/demo/app/demo.main.jar")).exists();
+        assertThat(build.projectDir.resolve("build/images/demo/bin/demo")).exists();
+        // A copy, so that the jar task does not change the modules of a running application
+        assertThat(Files.isSameFile(build.projectDir.resolve("build/libs/demo-0.0.1-SNAPSHOT.jar"), build.projectDir.resolve("build/images/demo/app/demo.main.jar")))
+                .isFalse();
+    }
+
+    @Test
+    void passes_the_add_options_and_warns_about_the_ignored_options() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	devRuntime = true
+                	addOptions = ['-Dgreeting=Hello']
+                	stripDebug = true
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println(System.getProperty("greeting") + ", world!");
+                    }
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageRun").build();
+
+        assertThat(buildResult.getOutput())
+                .contains("The dev runtime of :image ignores stripDebug, which only jlink can apply")
+                .contains("Hello, world!");
+        assertThat(build.projectDir.resolve("build/images/demo/bin/demo"))
+                .content()
+                .contains("JLINK_VM_OPTIONS='-Dgreeting=Hello'");
+    }
+
+    @Test
+    void does_not_store_a_dev_runtime_in_the_build_cache() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	devRuntime = true
+                }
+                """;
+
+        build.runner("image", "--build-cache").build();
+        build.runner("clean").build();
+        BuildResult buildResult = build.runner("image", "--build-cache").build();
+
+        assertThat(buildResult.task(":image"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(buildResult.getOutput())
+                .contains("Assembled :image as a dev runtime of");
+    }
+
+}
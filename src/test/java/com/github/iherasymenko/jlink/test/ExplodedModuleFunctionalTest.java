@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ExplodedModuleFunctionalTest extends AbstractTestBase {
+
+    @Test
+    void links_the_classes_of_the_project_as_an_exploded_module() throws IOException {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	explodedModule = true
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageRun").build();
+
+        assertThat(buildResult.task(":imageExplodedModule"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(buildResult.task(":jar")).isNull();
+        assertThat(buildResult.getOutput()).contains("Hello, world!");
+    }
+
+}
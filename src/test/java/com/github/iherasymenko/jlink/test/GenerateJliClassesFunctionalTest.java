@@ -0,0 +1,127 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledOnOs(value = OS.LINUX, architectures = "amd64", disabledReason = "The training runs have to be done on the platform of the cross-target JDK")
+final class GenerateJliClassesFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                import java.util.function.Function;
+                import java.util.function.Supplier;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       Function<String, Integer> length = String::length;
+                       Supplier<String> greeting = () -> "Hello, " + String.join(" ", args) + "!";
+                       System.out.println(greeting.get() + " " + length.apply("abc"));
+                       System.out.print("The last line");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+    }
+
+    @Test
+    void can_generate_jli_classes_resolved_during_training_runs() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    generateJliClasses = true
+                    trainingRuns = [
+                        greeting: ['world']
+                    ]
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageLinuxX64", "--info").build();
+
+        assertThat(build.projectDir.resolve("build/jlink/training/jli-classes.txt"))
+                .content()
+                .contains("[LF_RESOLVE] java.lang.invoke.")
+                .contains("[SPECIES_RESOLVE] java.lang.invoke.");
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Hello, world! 3")
+                .contains("The last line")
+                .doesNotContain("_RESOLVE]")
+                .contains("--generate-jli-classes=@");
+    }
+
+}
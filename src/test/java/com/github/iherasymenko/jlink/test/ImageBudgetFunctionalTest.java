@@ -0,0 +1,166 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ImageBudgetFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.sql;
+                }
+                """;
+    }
+
+    @Test
+    void check_fails_when_the_image_exceeds_its_budget() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    maxModuleCount = 3
+                    maxLibModulesSize = 1024L
+                }
+                """;
+        BuildResult buildResult = build.runner("check").buildAndFail();
+
+        assertThat(buildResult.task(":imageBudget"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.FAILED);
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Image budget exceeded for :imageBudget")
+                .containsPattern("module count: \\d+ modules > 3 modules")
+                .containsPattern("lib/modules size: \\d+ bytes > 1024 bytes");
+    }
+
+    @Test
+    void check_passes_when_the_image_fits_into_its_budget() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    maxImageSize = 500_000_000L
+                    maxModuleCount = 100
+                    maxStartupMillis = 60_000L
+                }
+                """;
+        BuildResult buildResult = build.runner("check").build();
+
+        assertThat(buildResult.task(":imageBudget"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(build.projectDir.resolve("build/reports/jlink/imageBudget.txt"))
+                .content()
+                .contains("module count: ")
+                .contains("median startup time: ");
+    }
+
+    @Test
+    void check_does_not_build_the_image_when_no_budget_is_configured() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+                """;
+        BuildResult buildResult = build.runner("check").build();
+
+        assertThat(buildResult.task(":imageBudget")).isNull();
+        assertThat(buildResult.task(":image")).isNull();
+    }
+
+}
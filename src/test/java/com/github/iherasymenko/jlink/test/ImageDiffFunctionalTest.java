@@ -0,0 +1,141 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ImageDiffFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+    }
+
+    @Test
+    void can_diff_an_image_against_a_baseline_directory() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                tasks.register('saveBaseline', Sync) {
+                    from(tasks.named('image'))
+                    into('baseline')
+                }
+
+                tasks.named('imageDiff') {
+                    baseline.from('baseline')
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+
+                }
+                """;
+        build.runner("saveBaseline").build();
+
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.net.http;
+                }
+                """;
+        BuildResult buildResult = build.runner("imageDiff").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Modules: ")
+                .containsPattern("\\+ java\\.net\\.http \\+\\d+ bytes")
+                .containsPattern("\\+ java\\.net\\.http/java\\.net\\.http \\+\\d+ bytes")
+                .containsPattern("\\+ java\\.net\\.http/java/net/http/HttpClient\\.class \\+\\d+ bytes")
+                .containsPattern("~ demo\\.main/module-info\\.class [+-]\\d+ bytes");
+        assertThat(build.projectDir.resolve("build/reports/jlink/imageDiff.txt")).exists();
+    }
+
+    @Test
+    void can_not_diff_an_image_without_a_baseline() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+
+                }
+                """;
+        BuildResult buildResult = build.runner("imageDiff").buildAndFail();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("No baseline image is configured for :imageDiff");
+    }
+
+}
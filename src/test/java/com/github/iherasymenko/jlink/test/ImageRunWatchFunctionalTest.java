@@ -0,0 +1,142 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ImageRunWatchFunctionalTest extends AbstractTestBase {
+
+    private Path pidFile;
+
+    @BeforeEach
+    void setUp() {
+        pidFile = build.projectDir.resolve("build/jlink/run/imageRun.pid");
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	devRuntime = true
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) throws InterruptedException {
+                       System.out.println("Hello, world!");
+                       Thread.sleep(60_000);
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+    }
+
+    @Test
+    void keeps_the_application_running_while_the_image_is_unchanged() throws IOException {
+        try {
+            BuildResult first = build.runner("imageRun", "--watch").build();
+
+            assertThat(first.getOutput())
+                    .contains("Hello, world!")
+                    .contains("Relink-to-first-output:")
+                    .contains("The application keeps running");
+            assertThat(pidFile).exists();
+            assertThat(build.projectDir.resolve("build/jlink/run/imageRun.log")).content().contains("Hello, world!");
+
+            BuildResult second = build.runner("imageRun", "--watch").build();
+
+            assertThat(second.getOutput())
+                    .contains("The image is unchanged, the application keeps running")
+                    .doesNotContain("Relink-to-first-output:");
+        } finally {
+            stopApplication();
+        }
+    }
+
+    @Test
+    void restarts_the_application_when_the_image_changes() throws IOException {
+        try {
+            build.runner("imageRun", "--watch").build();
+            long firstPid = pid();
+            ProcessHandle first = ProcessHandle.of(firstPid).orElseThrow();
+
+            build.mainClass = build.mainClass.replace("Hello, world!", "Hello, watch!");
+            BuildResult second = build.runner("imageRun", "--watch").build();
+
+            assertThat(second.getOutput())
+                    .contains("Stopping the application (pid " + firstPid + ")")
+                    .contains("Hello, watch!")
+                    .contains("Relink-to-first-output:")
+                    .contains("The application keeps running");
+            assertThat(pid()).isNotEqualTo(firstPid);
+            assertThat(first.isAlive()).isFalse();
+            assertThat(ProcessHandle.of(pid())).hasValueSatisfying(process -> assertThat(process.isAlive()).isTrue());
+            assertThat(build.projectDir.resolve("build/jlink/run/imageRun.log")).content()
+                    .contains("Hello, watch!")
+                    .doesNotContain("Hello, world!");
+        } finally {
+            stopApplication();
+        }
+    }
+
+    private long pid() throws IOException {
+        return Long.parseLong(Files.readAllLines(pidFile).get(0));
+    }
+
+    private void stopApplication() throws IOException {
+        if (Files.exists(pidFile)) {
+            ProcessHandle.of(pid()).ifPresent(ProcessHandle::destroy);
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ImageWhyFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.sql;
+                }
+                """;
+    }
+
+    @Test
+    void tells_why_every_module_is_linked() throws IOException {
+        BuildResult buildResult = build.runner("imageWhy").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .containsPattern("java.sql: \\d+ bytes, \\d+ bytes with the modules linked only because of it")
+                .contains("    demo.main -> java.sql -> java.logging")
+                .contains("    demo.main -> java.base");
+        assertThat(build.projectDir.resolve("build/reports/jlink/imageWhy.txt")).exists();
+    }
+
+    @Test
+    void tells_why_the_given_module_is_linked() throws IOException {
+        BuildResult buildResult = build.runner("imageWhy", "--module", "java.xml").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("    demo.main -> java.sql -> java.xml")
+                .doesNotContain("    demo.main -> java.sql -> java.logging");
+    }
+
+    @Test
+    void fails_if_the_given_module_is_not_linked() throws IOException {
+        BuildResult buildResult = build.runner("imageWhy", "--module", "java.desktop").buildAndFail();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Module java.desktop is not linked into the image of :imageWhy");
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class LocalImageStoreFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+    }
+
+    @Test
+    void restores_images_from_the_local_image_store() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                tasks.withType(AbstractArchiveTask).configureEach {
+                	preserveFileTimestamps = false
+                	reproducibleFileOrder = true
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	useLocalImageStore = true
+                }
+                """;
+
+        build.runner("image").build();
+        BuildResult buildResult = build.runner("clean", "image").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Restored :image from the local image store");
+        assertThat(build.projectDir.resolve("build/images/demo/lib/modules")).exists();
+        assertThat(build.projectDir.resolve("build/images/demo/release")).exists();
+    }
+
+    @Test
+    void writing_to_a_restored_image_does_not_change_the_stored_one() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                tasks.withType(AbstractArchiveTask).configureEach {
+                	preserveFileTimestamps = false
+                	reproducibleFileOrder = true
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	useLocalImageStore = true
+                }
+                """;
+
+        build.runner("image").build();
+        Path release = build.projectDir.resolve("build/images/demo/release");
+        Files.writeString(release, "CHANGED=true\n", StandardOpenOption.APPEND);
+        build.runner("clean", "image").build();
+        Files.writeString(release, "CHANGED=true\n", StandardOpenOption.APPEND);
+        BuildResult buildResult = build.runner("clean", "image").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Restored :image from the local image store");
+        assertThat(release).content().doesNotContain("CHANGED=true");
+    }
+
+    @Test
+    void evicts_the_least_recently_used_images() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                tasks.withType(AbstractArchiveTask).configureEach {
+                	preserveFileTimestamps = false
+                	reproducibleFileOrder = true
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                	useLocalImageStore = true
+	localImageStoreMaxSize = 1L
+                }
+                """;
+
+        build.runner("image").build();
+        String mainClass = build.mainClass;
+        build.mainClass = mainClass.replace("Hello, world!", "Hello, store!");
+        BuildResult changed = build.runner("image", "--info").build();
+        build.mainClass = mainClass;
+        BuildResult reverted = build.runner("image").build();
+
+        assertThat(changed)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("from the local image store, last used at");
+        assertThat(reverted)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .doesNotContain("Restored :image from the local image store");
+    }
+
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ModuleAnalysisFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires com.zaxxer.hikari;
+                }
+                """;
+    }
+
+    @Test
+    void links_only_the_module_path_entries_of_the_resolved_modules() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                dependencies {
+                    implementation platform('org.slf4j:slf4j-bom:2.0.9')
+                    implementation 'com.zaxxer:HikariCP:5.1.0'
+                    implementation 'com.fasterxml.jackson.core:jackson-core:2.15.3'
+                }
+                """;
+
+        BuildResult buildResult = build.runner("image", "--info").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Analyzing the module path of 4 entries")
+                .contains("Linking 3 of 4 module path entries");
+    }
+
+    @Test
+    void reads_the_module_catalog_of_the_jdk_once() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                dependencies {
+                    implementation platform('org.slf4j:slf4j-bom:2.0.9')
+                    implementation 'com.zaxxer:HikariCP:5.1.0'
+                    implementation 'com.fasterxml.jackson.core:jackson-core:2.15.3'
+                }
+                """;
+
+        build.runner("image").build();
+        BuildResult buildResult = build.runner("image", "--rerun-tasks", "--info").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Linking 3 of 4 module path entries")
+                .doesNotContain("Read the module catalog of");
+    }
+
+    @Test
+    void fails_if_a_module_is_not_found() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    addModules = ['com.example.missing']
+                }
+
+                dependencies {
+                    implementation platform('org.slf4j:slf4j-bom:2.0.9')
+                    implementation 'com.zaxxer:HikariCP:5.1.0'
+                    implementation 'com.fasterxml.jackson.core:jackson-core:2.15.3'
+                }
+                """;
+
+        BuildResult buildResult = build.runner("image").buildAndFail();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Module com.example.missing not found, required by --add-modules");
+    }
+
+    @Test
+    void keeps_the_first_module_path_entry_of_a_module() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                configurations {
+                    olderHikari {
+                        transitive = false
+                    }
+                }
+
+                dependencies {
+                    implementation platform('org.slf4j:slf4j-bom:2.0.9')
+                    implementation 'com.zaxxer:HikariCP:5.1.0'
+                    implementation 'com.fasterxml.jackson.core:jackson-core:2.15.3'
+                    olderHikari 'com.zaxxer:HikariCP:5.0.1'
+                }
+
+                tasks.named('image') {
+                    modulePath = files(tasks.named('jar'), configurations.runtimeClasspath, configurations.olderHikari)
+                }
+                """;
+
+        BuildResult buildResult = build.runner("image", "--info").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .containsPattern("Module com.zaxxer.hikari is found in both .*HikariCP-5.1.0.jar and .*HikariCP-5.0.1.jar, the latter is ignored")
+                .contains("Linking 3 of 5 module path entries");
+    }
+
+    @Test
+    void expands_a_directory_of_modules_and_passes_the_unreadable_entries_as_is() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                configurations {
+                    automatic {
+                        transitive = false
+                    }
+                }
+
+                dependencies {
+                    implementation platform('org.slf4j:slf4j-bom:2.0.9')
+                    implementation 'com.zaxxer:HikariCP:5.1.0'
+                    automatic 'commons-lang:commons-lang:2.6'
+                }
+
+                def mods = tasks.register('mods', Sync) {
+                    from configurations.runtimeClasspath
+                    into layout.buildDirectory.dir('mods')
+                }
+
+                tasks.named('image') {
+                    modulePath = files(tasks.named('jar'), mods, configurations.automatic)
+                }
+                """;
+
+        build.runner("image").build();
+
+        assertThat(build.projectDir.resolve("build/images/demo/release"))
+                .content()
+                .contains("com.zaxxer.hikari")
+                .contains("org.slf4j");
+    }
+
+    @Test
+    void reads_the_module_descriptor_of_a_multi_release_jar_for_the_release_of_the_jdk() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(System.getenv().getOrDefault('TESTING_AGAINST_JDK', '21'))
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                sourceSets {
+                    library
+                    library11
+                    library99
+                }
+
+                def libraryJar = tasks.register('libraryJar', Jar) {
+                    archiveBaseName = 'library'
+                    manifest {
+                        attributes('Multi-Release': 'true')
+                    }
+                    from(sourceSets.library.output)
+                    into('META-INF/versions/11') {
+                        from(sourceSets.library11.output)
+                    }
+                    into('META-INF/versions/99') {
+                        from(sourceSets.library99.output)
+                    }
+                }
+
+                dependencies {
+                    implementation files(libraryJar)
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires com.example.library;
+                }
+                """;
+        writeLibraryModuleInfo("library", "");
+        writeLibraryModuleInfo("library11", "requires java.logging;");
+        writeLibraryModuleInfo("library99", "requires java.sql;");
+
+        BuildResult linked = build.runner("imageWhy", "--module", "java.logging").build();
+        BuildResult notLinked = build.runner("imageWhy", "--module", "java.sql").buildAndFail();
+
+        assertThat(linked)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("    demo.main -> com.example.library -> java.logging");
+        assertThat(notLinked)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Module java.sql is not linked into the image of :imageWhy");
+    }
+
+    private void writeLibraryModuleInfo(String sourceSet, String directives) throws IOException {
+        Path folder = Files.createDirectories(build.projectDir.resolve("src/" + sourceSet + "/java"));
+        Files.writeString(folder.resolve("module-info.java"), "module com.example.library { " + directives + " }");
+    }
+
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledOnOs(value = OS.LINUX, architectures = "amd64", disabledReason = "The training runs have to be done on the platform of the cross-target JDK")
+final class PruneNativeLibrariesFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, " + String.join(" ", args) + "!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.desktop;
+                }
+                """;
+    }
+
+    @Test
+    void can_prune_native_libraries_not_loaded_during_training_runs() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    pruneNativeLibraries = true
+                    trainingRuns = [
+                        greeting: ['world']
+                    ]
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageLinuxX64").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Training run 'greeting': [world]")
+                .contains("Hello, world!")
+                .contains("native libraries not loaded during the training runs");
+        assertThat(build.projectDir.resolve("build/jlink/training/native-libraries.txt")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libjava.so")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libawt.so")).doesNotExist();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libfontmanager.so")).doesNotExist();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libjsound.so")).doesNotExist();
+    }
+
+    @Test
+    void can_keep_allowlisted_native_libraries() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    pruneNativeLibraries = true
+                    nativeLibrariesAllowlist = ['awt']
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+
+        build.runner("imageLinuxX64").build();
+
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libawt.so")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libawt_headless.so")).doesNotExist();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libjsound.so")).doesNotExist();
+    }
+
+    @Test
+    void keeps_native_libraries_the_kept_ones_are_linked_against() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    pruneNativeLibraries = true
+                    nativeLibrariesAllowlist = ['nio']
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+
+        build.runner("imageLinuxX64").build();
+
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libnio.so")).exists();
+        // libnio.so is linked against libnet.so
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libnet.so")).exists();
+        assertThat(build.projectDir.resolve("build/images/linuxX64/lib/libawt.so")).doesNotExist();
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+final class ReuseToolchainJmodsFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, world!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                }
+                """;
+    }
+
+    @Test
+    void links_with_the_jmods_of_the_toolchain_if_it_is_the_same_jdk() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                // Pretends the archive below has been extracted by an earlier build, and it is the same JDK as the toolchain
+                def toolchainHome = javaToolchains.launcherFor(java.toolchain).get().metadata.installationPath.asFile
+                def indexEntry = new File(gradle.gradleUserHomeDir, 'caches/jlink-gradle-plugin/jdk-releases/com.example.unavailable/jdk-toolchain.zip.release')
+                indexEntry.parentFile.mkdirs()
+                indexEntry.text = new File(toolchainHome, 'release').text
+
+                jlinkImages {
+                	toolchain {
+                		group = 'com.example.unavailable'
+                		jdkArchive = 'jdk-toolchain.zip'
+                	}
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageToolchain").build();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Linking :imageToolchain with the jmods of the toolchain, as it is the same JDK as the cross-target one");
+        assertThat(build.projectDir.resolve("build/images/toolchain/release")).exists();
+    }
+
+    @Test
+    void downloads_the_jdk_archive_if_reuse_is_disabled() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                // Pretends the archive below has been extracted by an earlier build, and it is the same JDK as the toolchain
+                def toolchainHome = javaToolchains.launcherFor(java.toolchain).get().metadata.installationPath.asFile
+                def indexEntry = new File(gradle.gradleUserHomeDir, 'caches/jlink-gradle-plugin/jdk-releases/com.example.unavailable/jdk-toolchain.zip.release')
+                indexEntry.parentFile.mkdirs()
+                indexEntry.text = new File(toolchainHome, 'release').text
+
+                jlinkImages {
+                	toolchain {
+                		group = 'com.example.unavailable'
+                		jdkArchive = 'jdk-toolchain.zip'
+                		reuseToolchainJmods = false
+                	}
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageToolchain").buildAndFail();
+
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .contains("Could not find com.example.unavailable:jdk-toolchain");
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2023 Ihor Herasymenko.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.iherasymenko.jlink.test;
+
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@EnabledOnOs(value = OS.LINUX, architectures = "amd64", disabledReason = "The training runs have to be done on the platform of the cross-target JDK")
+final class ShrinkModulesFunctionalTest extends AbstractTestBase {
+
+    @BeforeEach
+    void setUp() {
+        build.settingsFile = """
+                rootProject.name = 'demo'
+                dependencyResolutionManagement {
+                    repositories {
+                        ivy {
+                            url = uri('https://cdn.azul.com/zulu/bin/')
+                            patternLayout {
+                                artifact '[artifact].[ext]'
+                            }
+                            metadataSources {
+                                artifact()
+                            }
+                            content {
+                                includeGroup 'com.azul.cdn'
+                            }
+                        }
+                        mavenCentral()
+                    }
+                }
+                """;
+        build.mainClass = """
+                package com.example.demo;
+
+                import java.awt.Point;
+
+                public class DemoApplication {
+                    public static void main(String[] args) {
+                       System.out.println("Hello, " + new Point(1, 2).getX() + "!");
+                    }
+                }
+                """;
+        build.moduleInfo = """
+                module demo.main {
+                    requires java.desktop;
+                }
+                """;
+    }
+
+    @Test
+    void can_exclude_classes_not_loaded_during_training_runs() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    shrinkModules = ['java.desktop']
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+
+        BuildResult buildResult = build.runner("imageLinuxX64").build();
+
+        assertThat(buildResult.task(":imageLinuxX64TrainingRun"))
+                .extracting(BuildTask::getOutcome)
+                .isEqualTo(TaskOutcome.SUCCESS);
+        assertThat(buildResult)
+                .extracting(BuildResult::getOutput, InstanceOfAssertFactories.STRING)
+                .containsPattern("Excluding \\d+ classes of \\[java.desktop] not loaded during the training runs")
+                .contains("Hello, 1.0!");
+        assertThat(build.projectDir.resolve("build/jlink/training/loaded-classes.txt"))
+                .content()
+                .contains("java/awt/Point");
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Map.of("java.home", build.projectDir.resolve("build/images/linuxX64").toString()))) {
+            assertThat(jrt.getPath("/modules/java.desktop/java/awt/Point.class")).exists();
+            assertThat(jrt.getPath("/modules/java.desktop/javax/swing/JTable.class")).doesNotExist();
+            // Service providers are never excluded
+            assertThat(jrt.getPath("/modules/java.desktop/sun/print/PrintServiceLookupProvider.class")).exists();
+        }
+    }
+
+    @Test
+    void can_keep_classes_not_loaded_during_training_runs() throws IOException {
+        build.buildFile = """
+                plugins {
+                	id 'application'
+                	id 'com.github.iherasymenko.jlink'
+                }
+
+                group = 'com.example'
+                version = '0.0.1-SNAPSHOT'
+
+                java {
+                	toolchain {
+                		languageVersion = JavaLanguageVersion.of(21)
+                		vendor = JvmVendorSpec.AZUL
+                	}
+                }
+
+                application {
+                	mainClass = 'com.example.demo.DemoApplication'
+                	mainModule = 'demo.main'
+                }
+
+                jlinkApplication {
+                    shrinkModules = ['java.desktop']
+                    keepClasses = ['javax.swing.JTable*']
+                }
+
+                jlinkImages {
+                	linuxX64 {
+                		group = 'com.azul.cdn'
+                		jdkArchive = 'zulu21.30.15-ca-jdk21.0.1-linux_x64.zip'
+                	}
+                }
+                """;
+
+        build.runner("imageLinuxX64").build();
+
+        try (FileSystem jrt = FileSystems.newFileSystem(URI.create("jrt:/"), Map.of("java.home", build.projectDir.resolve("build/images/linuxX64").toString()))) {
+            assertThat(jrt.getPath("/modules/java.desktop/javax/swing/JTable.class")).exists();
+            assertThat(jrt.getPath("/modules/java.desktop/javax/swing/JTable$PrintMode.class")).exists();
+            assertThat(jrt.getPath("/modules/java.desktop/javax/swing/JTree.class")).doesNotExist();
+        }
+    }
+
+}